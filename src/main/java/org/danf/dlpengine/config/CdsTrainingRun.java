@@ -0,0 +1,36 @@
+package org.danf.dlpengine.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.ScanRequest;
+import org.danf.dlpengine.model.ScanResults;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * The training run for the AppCDS archive (see the appcds profile in pom.xml): once the application is ready it serves a single scan request
+ * through the REST API and exits.
+ * <p>
+ * The archive holds the classes loaded during the training run, so running a real request makes sure it covers everything the first scan of a
+ * new replica needs (Spring MVC's dispatching, Jackson, the scanners), not just the classes needed to start up.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("engine.startup.training-run")
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String TRAINING_INPUT = "SSN 123-45-6789, pay to DE44 5001 0517 5407 3249 31";
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        var context = (ServletWebServerApplicationContext) event.getApplicationContext();
+        var url = "http://localhost:" + context.getWebServer().getPort() + "/api/v1/scan/text";
+        var results = new RestTemplate().postForObject(url, ScanRequest.builder().text(TRAINING_INPUT).build(), ScanResults.class);
+        log.info("Training run done, scan returned {} results", results == null ? 0 : results.getResults().size());
+        System.exit(SpringApplication.exit(context));
+    }
+}
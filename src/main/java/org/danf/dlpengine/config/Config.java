@@ -2,31 +2,15 @@ package org.danf.dlpengine.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ExitCodeExceptionMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import springfox.documentation.builders.PathSelectors;
-import springfox.documentation.builders.RequestHandlerSelectors;
-import springfox.documentation.spi.DocumentationType;
-import springfox.documentation.spring.web.plugins.Docket;
-import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Slf4j
 @Configuration
-@EnableSwagger2
+@EnableConfigurationProperties(PolicyProperties.class)
 public class Config {
 
-    /**
-     * Swagger Configuration bean for auto-generating swagger docs for the API
-     */
-    @Bean
-    public Docket api() {
-        return new Docket(DocumentationType.SWAGGER_2)
-                .select()
-                .apis(RequestHandlerSelectors.any())
-                .paths(PathSelectors.any())
-                .build();
-    }
-
     /**
      * Catches exceptions and maps them to a non-zero return code so that the pod running this app shows as failed on errors.
      */
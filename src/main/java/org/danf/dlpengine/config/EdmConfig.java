@@ -0,0 +1,40 @@
+package org.danf.dlpengine.config;
+
+import org.danf.dlpengine.edm.Fingerprinter;
+import org.danf.dlpengine.edm.FingerprintIndex;
+import org.danf.dlpengine.scanner.ExactDataMatchScanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Exact data match scanners, only available if an index of known values is configured (engine.edm.index-file). Build the index with
+ * {@link org.danf.dlpengine.edm.FingerprintIndexBuilder}, using the same salt as engine.edm.salt.
+ */
+@Lazy(false) // Scanners are part of the scanning path, see application-prod.yml
+@Configuration
+@ConditionalOnProperty("engine.edm.index-file")
+public class EdmConfig {
+
+    @Bean
+    public FingerprintIndex fingerprintIndex(@Value("${engine.edm.index-file}") String indexFile,
+                                             @Value("${engine.edm.salt}") String salt,
+                                             @Value("${engine.edm.preload:false}") boolean preload) throws IOException {
+        return FingerprintIndex.open(Path.of(indexFile), new Fingerprinter(salt), preload);
+    }
+
+    @Bean
+    public ExactDataMatchScanner knownSocialSecurityNumberScanner(FingerprintIndex index) {
+        return ExactDataMatchScanner.knownSocialSecurityNumbers(index);
+    }
+
+    @Bean
+    public ExactDataMatchScanner knownIbanScanner(FingerprintIndex index) {
+        return ExactDataMatchScanner.knownIbans(index);
+    }
+}
@@ -0,0 +1,49 @@
+package org.danf.dlpengine.config;
+
+import lombok.Data;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named policy profiles callers may select per request, see application.yml for examples.
+ */
+@Data
+@ConfigurationProperties(prefix = "engine")
+public class PolicyProperties {
+
+    /**
+     * Policy profiles by name.
+     */
+    private Map<String, Profile> policies = new LinkedHashMap<>();
+
+    @Data
+    public static class Profile {
+
+        /**
+         * The sensitive data types to scan for, only their scanners are run.
+         */
+        private List<SensitiveDataType> detectors = new ArrayList<>();
+
+        /**
+         * Min context rank per sensitive data type for results of that type to be reported.
+         */
+        private Map<SensitiveDataType, Integer> contextRankThresholds = new EnumMap<>(SensitiveDataType.class);
+
+        /**
+         * Stop scanning once a single result is reported, for callers only interested in whether the input holds any sensitive data at all.
+         */
+        private boolean earlyExit = false;
+
+        /**
+         * Also report the (estimated) number of distinct values matched per type and the most frequent ones, identified by salted fingerprints
+         * (see {@link org.danf.dlpengine.sketch.ValueStatistics}). Ignored with early exit.
+         */
+        private boolean distinctValues = false;
+    }
+}
@@ -0,0 +1,33 @@
+package org.danf.dlpengine.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import springfox.documentation.builders.PathSelectors;
+import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.spi.DocumentationType;
+import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.swagger2.annotations.EnableSwagger2;
+
+/**
+ * Swagger is a noticeable part of startup time (it inspects every request handler on context refresh), so it can be turned off with
+ * engine.swagger.enabled=false, as done by the prod profile.
+ */
+@Configuration
+@EnableSwagger2
+@ConditionalOnProperty(name = "engine.swagger.enabled", matchIfMissing = true)
+public class SwaggerConfig {
+
+    /**
+     * Swagger Configuration bean for auto-generating swagger docs for the API.
+     * Only this service's own controllers are documented, rather than every handler on the classpath (e.g. Spring's error controller).
+     */
+    @Bean
+    public Docket api() {
+        return new Docket(DocumentationType.SWAGGER_2)
+                .select()
+                .apis(RequestHandlerSelectors.basePackage("org.danf.dlpengine.rest"))
+                .paths(PathSelectors.any())
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package org.danf.dlpengine.edm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only set of known sensitive value fingerprints (see {@link Fingerprinter}), memory mapped from an index file built by
+ * {@link FingerprintIndexBuilder}.
+ * <p>
+ * File layout (little endian):
+ * - A {@value #HEADER_BYTES} byte header: magic, salt check, table capacity, number of entries, Bloom filter bits and hash count.
+ * - An optional Bloom filter of all fingerprints, as an array of longs.
+ * - An open addressing (linear probing) hash table of fingerprints, as an array of longs where 0 marks an empty slot. Capacity is a power of 2 at
+ *   least twice the number of entries.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Opening the index only maps the file, so startup time doesn't depend on the index size - pages are read in by the OS on first access (or up front,
+ * see engine.edm.preload). Neither the table nor the filter live on the heap, so hundreds of millions of entries don't burden the GC either.
+ * Since the fingerprints are already uniformly distributed hashes, their low bits are used as the slot directly.
+ * <p>
+ * Most lookups are of values that aren't in the index. When the table is much bigger than the memory available for the page cache, such a miss
+ * costs a random disk read, while the Bloom filter (~10 bits per entry rather than the table's 128) is far more likely to stay in memory and answers
+ * most misses by itself.
+ */
+@Slf4j
+public class FingerprintIndex {
+
+    static final long MAGIC = 0x31304d4445504c44L; // "DLPEDM01"
+    static final int HEADER_BYTES = 64;
+
+    private final Fingerprinter fingerprinter;
+    private final MappedLongArray table;
+    private final long slotMask;
+    private final long size;
+    @Nullable
+    private final MappedLongArray bloomFilter;
+    private final long bloomBitMask;
+    private final int bloomHashes;
+
+    private FingerprintIndex(Fingerprinter fingerprinter, MappedLongArray table, long size, @Nullable MappedLongArray bloomFilter, int bloomHashes) {
+        this.fingerprinter = fingerprinter;
+        this.table = table;
+        this.slotMask = table.length() - 1;
+        this.size = size;
+        this.bloomFilter = bloomFilter;
+        this.bloomBitMask = bloomFilter == null ? 0 : bloomFilter.length() * Long.SIZE - 1;
+        this.bloomHashes = bloomHashes;
+    }
+
+    /**
+     * @param preload read the whole index into memory now rather than on first access.
+     * @throws IllegalStateException if the file isn't an index or was built with a different salt.
+     */
+    public static FingerprintIndex open(Path file, Fingerprinter fingerprinter, boolean preload) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is full or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+                throw new IllegalStateException("Not an EDM index file: " + file);
+            }
+            if (header.getLong() != fingerprinter.saltCheck()) {
+                throw new IllegalStateException("EDM index " + file + " was built with a different salt");
+            }
+            var capacity = header.getLong();
+            var size = header.getLong();
+            var bloomLongs = header.getLong();
+            var bloomHashes = header.getInt();
+            if (Long.bitCount(capacity) != 1 || channel.size() != HEADER_BYTES + (bloomLongs + capacity) * Long.BYTES) {
+                throw new IllegalStateException("Corrupt EDM index file: " + file);
+            }
+
+            // Mappings stay valid after the channel is closed
+            MappedLongArray bloomFilter = null;
+            if (bloomLongs > 0) {
+                bloomFilter = new MappedLongArray(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES, bloomLongs);
+            }
+            var table = new MappedLongArray(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES + bloomLongs * Long.BYTES, capacity);
+            if (preload) {
+                if (bloomFilter != null) {
+                    bloomFilter.load();
+                }
+                table.load();
+            }
+            log.info("Opened EDM index '{}' with {} entries ({} slots, Bloom filter: {})", file, size, capacity,
+                    bloomFilter == null ? "none" : bloomLongs * Long.SIZE + " bits");
+            return new FingerprintIndex(fingerprinter, table, size, bloomFilter, bloomHashes);
+        }
+    }
+
+    /**
+     * @return true if the value (of the given type) is one of the known values. The value is normalized first, so the way it's written doesn't matter.
+     */
+    public boolean contains(SensitiveDataType type, CharSequence value) {
+        long fingerprint;
+        try {
+            fingerprint = fingerprinter.fingerprint(type, value);
+        } catch (IllegalArgumentException e) {
+            // Not a valid value of this type, so it can't be a known one
+            return false;
+        }
+        return containsFingerprint(fingerprint);
+    }
+
+    boolean containsFingerprint(long fingerprint) {
+        if (bloomFilter != null) {
+            for (int i = 0; i < bloomHashes; i++) {
+                var bit = bloomBit(fingerprint, i, bloomBitMask);
+                if ((bloomFilter.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+        }
+        for (long slot = fingerprint & slotMask; ; slot = (slot + 1) & slotMask) {
+            var entry = table.get(slot);
+            if (entry == fingerprint) {
+                return true;
+            } else if (entry == 0) {
+                return false;
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the i-th Bloom filter bit of the fingerprint - double hashing of two values derived from the fingerprint, so that they're independent of
+     * the low bits used for the table slot.
+     */
+    static long bloomBit(long fingerprint, int i, long bitMask) {
+        var h1 = Long.rotateLeft(fingerprint, 32);
+        var h2 = (fingerprint * 0x9E3779B97F4A7C15L) | 1;
+        return (h1 + i * h2) & bitMask;
+    }
+}
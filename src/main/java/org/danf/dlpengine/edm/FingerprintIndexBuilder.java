@@ -0,0 +1,163 @@
+package org.danf.dlpengine.edm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.SensitiveDataType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Builds a {@link FingerprintIndex} file from a file of known sensitive values, one "TYPE,value" per line, e.g.:
+ * <pre>
+ * SSN,123-45-6789
+ * IBAN,DE44 5001 0517 5407 3249 31
+ * </pre>
+ * Blank lines and lines starting with '#' are skipped.
+ * <p>
+ * Values are never held in memory: the input is read twice, once to count the values (which sizes the table) and once to insert their fingerprints
+ * straight into the memory mapped output file. So building an index of hundreds of millions of values only takes as much memory as the OS lends to
+ * the mapping.
+ * <p>
+ * Runnable from the application jar, with the salt given by the EDM_SALT environment variable (so it doesn't show up in the process list):
+ * EDM_SALT=... java -cp dlp-engine.jar -Dloader.main=org.danf.dlpengine.edm.FingerprintIndexBuilder org.springframework.boot.loader.PropertiesLauncher \
+ * values.csv index.edm [bloom-bits-per-entry]
+ */
+@Slf4j
+public class FingerprintIndexBuilder {
+
+    // Bloom filter bits per entry, ~1% false positives with the optimal number of hashes
+    public static final int DEFAULT_BLOOM_BITS_PER_ENTRY = 10;
+    private static final int MIN_CAPACITY = 16;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: FingerprintIndexBuilder <values-file> <index-file> [bloom-bits-per-entry, 0 for none]");
+            System.exit(1);
+        }
+        var bloomBitsPerEntry = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BLOOM_BITS_PER_ENTRY;
+        var entries = build(Path.of(args[0]), Path.of(args[1]), new Fingerprinter(System.getenv("EDM_SALT")), bloomBitsPerEntry);
+        System.out.println("Indexed " + entries + " values into " + args[1]);
+    }
+
+    /**
+     * @param bloomBitsPerEntry size of the Bloom filter in bits per value, 0 for no filter.
+     * @return the number of distinct values indexed.
+     * @throws IllegalArgumentException on lines that aren't a valid "TYPE,value".
+     */
+    public static long build(Path values, Path index, Fingerprinter fingerprinter, int bloomBitsPerEntry) throws IOException {
+        var count = countValues(values);
+        var capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, count * 2 - 1)) << 1);
+        var bloomLongs = 0L;
+        var bloomHashes = 0;
+        if (bloomBitsPerEntry > 0) {
+            // A power of 2 number of bits, so bits are picked by masking
+            var bloomBits = Math.max(Long.SIZE, Long.highestOneBit(Math.max(1, count * bloomBitsPerEntry - 1)) << 1);
+            bloomLongs = bloomBits / Long.SIZE;
+            bloomHashes = Math.max(1, (int) Math.round((double) bloomBits / Math.max(1, count) * Math.log(2)));
+        }
+
+        // Built aside and moved into place once complete, so a running engine never sees a partial index
+        var temp = index.resolveSibling(index.getFileName() + ".tmp");
+        long size = 0;
+        try (var file = new RandomAccessFile(temp.toFile(), "rw"); var channel = file.getChannel()) {
+            file.setLength(0);
+            file.setLength(FingerprintIndex.HEADER_BYTES + (bloomLongs + capacity) * Long.BYTES);
+            var bloomFilter = bloomLongs == 0 ? null : new MappedLongArray(channel, FileChannel.MapMode.READ_WRITE, FingerprintIndex.HEADER_BYTES, bloomLongs);
+            var table = new MappedLongArray(channel, FileChannel.MapMode.READ_WRITE, FingerprintIndex.HEADER_BYTES + bloomLongs * Long.BYTES, capacity);
+
+            try (var reader = Files.newBufferedReader(values, StandardCharsets.UTF_8)) {
+                var lineNumber = 0L;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (isSkipped(line)) {
+                        continue;
+                    }
+                    var fingerprint = fingerprint(fingerprinter, line, lineNumber);
+                    if (insert(table, capacity - 1, fingerprint)) {
+                        size++;
+                        if (bloomFilter != null) {
+                            var bitMask = bloomLongs * Long.SIZE - 1;
+                            for (int i = 0; i < bloomHashes; i++) {
+                                var bit = FingerprintIndex.bloomBit(fingerprint, i, bitMask);
+                                bloomFilter.set(bit >>> 6, bloomFilter.get(bit >>> 6) | (1L << bit));
+                            }
+                        }
+                    }
+                }
+            }
+
+            var header = ByteBuffer.allocate(FingerprintIndex.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putLong(FingerprintIndex.MAGIC)
+                    .putLong(fingerprinter.saltCheck())
+                    .putLong(capacity)
+                    .putLong(size)
+                    .putLong(bloomLongs)
+                    .putInt(bloomHashes)
+                    .position(0);
+            channel.write(header, 0);
+            if (bloomFilter != null) {
+                bloomFilter.force();
+            }
+            table.force();
+            channel.force(true);
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Built EDM index '{}' with {} entries ({} slots, {} Bloom filter bits)", index, size, capacity, bloomLongs * Long.SIZE);
+        return size;
+    }
+
+    /**
+     * @return false if the fingerprint was already in the table.
+     */
+    private static boolean insert(MappedLongArray table, long slotMask, long fingerprint) {
+        for (long slot = fingerprint & slotMask; ; slot = (slot + 1) & slotMask) {
+            var entry = table.get(slot);
+            if (entry == fingerprint) {
+                return false;
+            } else if (entry == 0) {
+                table.set(slot, fingerprint);
+                return true;
+            }
+        }
+    }
+
+    private static long countValues(Path values) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(values, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!isSkipped(line)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isSkipped(String line) {
+        return line.isBlank() || line.startsWith("#");
+    }
+
+    private static long fingerprint(Fingerprinter fingerprinter, String line, long lineNumber) {
+        var separator = line.indexOf(',');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Line " + lineNumber + " isn't a 'TYPE,value' pair");
+        }
+        try {
+            var type = SensitiveDataType.valueOf(line.substring(0, separator).trim());
+            return fingerprinter.fingerprint(type, line.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            // Don't include the value itself in the message
+            throw new IllegalArgumentException("Invalid value on line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.danf.dlpengine.edm;
+
+import org.danf.dlpengine.model.SensitiveDataType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Turns sensitive values into salted 64 bit fingerprints, so the index of known values never holds the values themselves.
+ * <p>
+ * Values are normalized first, so that the same value written differently (e.g. an SSN with or without dashes, an IBAN with or without spaces)
+ * has the same fingerprint. The value's type is hashed along with it so the same digits of different types don't collide.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * The fingerprint is the first 64 bits of SHA-256(salt, type, value). With 64 bits the chance of an unknown value colliding with one of N known values
+ * is about N / 2^64, i.e. less than 1 in 10^10 even for a billion known values - while keeping the index at 8 bytes per slot.
+ * The salt keeps the fingerprints from being looked up in precomputed tables, but note there are only 10^9 possible SSNs, so anyone holding both the
+ * index and the salt can brute force it - which is why the salt is configured separately (engine.edm.salt) rather than stored in the index.
+ */
+public class Fingerprinter {
+
+    private static final String SALT_CHECK_VALUE = "salt-check";
+
+    private final byte[] salt;
+    private final ThreadLocal<MessageDigest> digests;
+
+    public Fingerprinter(String salt) {
+        if (salt == null || salt.isBlank()) {
+            throw new IllegalArgumentException("EDM salt must be given");
+        }
+        this.salt = salt.getBytes(StandardCharsets.UTF_8);
+        this.digests = ThreadLocal.withInitial(Fingerprinter::newDigest);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value isn't a valid value of the given type.
+     */
+    public long fingerprint(SensitiveDataType type, CharSequence value) {
+        return hash(type.name(), normalize(type, value));
+    }
+
+    /**
+     * @return a fingerprint identifying the salt itself, stored in the index (and value sketches) to detect them being used with the wrong salt.
+     */
+    public long saltCheck() {
+        return hash(SALT_CHECK_VALUE, "");
+    }
+
+    /**
+     * @return the canonical form of the value - digits only for SSNs, upper case letters and digits only for IBANs.
+     */
+    static String normalize(SensitiveDataType type, CharSequence value) {
+        var normalized = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toUpperCase(c));
+            }
+        }
+        switch (type) {
+            case SSN:
+                if (normalized.length() != 9 || !normalized.chars().allMatch(Character::isDigit)) {
+                    throw new IllegalArgumentException("Not a valid SSN");
+                }
+                break;
+            case IBAN:
+                // Shortest IBANs are 15 characters long, longest ones 34 characters
+                if (normalized.length() < 15 || normalized.length() > 34) {
+                    throw new IllegalArgumentException("Not a valid IBAN");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Exact data match isn't supported for " + type.name());
+        }
+        return normalized.toString();
+    }
+
+    private long hash(String type, String normalized) {
+        var digest = digests.get();
+        digest.reset();
+        digest.update(salt);
+        digest.update(type.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(normalized.getBytes(StandardCharsets.US_ASCII));
+        var fingerprint = ByteBuffer.wrap(digest.digest()).getLong();
+        // 0 marks an empty slot in the index
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
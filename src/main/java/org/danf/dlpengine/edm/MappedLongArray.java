@@ -0,0 +1,62 @@
+package org.danf.dlpengine.edm;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A long array backed by a memory mapped region of a file.
+ * <p>
+ * A single mapping is limited to 2GB, so bigger regions are mapped in segments of {@link #SEGMENT_LONGS} longs. Reads use absolute positions only,
+ * so a read-only array may be shared between threads.
+ */
+final class MappedLongArray {
+
+    private static final int SEGMENT_SHIFT = 27;
+    // 1GB per mapping
+    static final long SEGMENT_LONGS = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_LONGS - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long length;
+
+    MappedLongArray(FileChannel channel, FileChannel.MapMode mode, long offset, long length) throws IOException {
+        this.length = length;
+        var segmentCount = (int) ((length + SEGMENT_LONGS - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            var segmentLength = Math.min(SEGMENT_LONGS, length - i * SEGMENT_LONGS);
+            var segment = channel.map(mode, offset + i * SEGMENT_LONGS * Long.BYTES, segmentLength * Long.BYTES);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            segments[i] = segment;
+        }
+    }
+
+    long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) << 3);
+    }
+
+    void set(long index, long value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].putLong((int) (index & SEGMENT_MASK) << 3, value);
+    }
+
+    long length() {
+        return length;
+    }
+
+    /**
+     * Reads the whole region into memory up front instead of paging it in on first access.
+     */
+    void load() {
+        for (var segment : segments) {
+            segment.load();
+        }
+    }
+
+    void force() {
+        for (var segment : segments) {
+            segment.force();
+        }
+    }
+}
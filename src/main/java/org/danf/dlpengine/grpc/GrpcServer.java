@@ -0,0 +1,89 @@
+package org.danf.dlpengine.grpc;
+
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gRPC server alongside the embedded Tomcat, started and stopped with the application context.
+ * <p>
+ * Calls are executed on a fixed size pool, for the same reason Tomcat's request threads are capped (see application.yml) - scanning is pure cpu work.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "engine.grpc.enabled", matchIfMissing = true)
+public class GrpcServer implements SmartLifecycle {
+
+    private final ScanGrpcService scanGrpcService;
+    private final int port;
+    private final int threads;
+
+    private Server server;
+    private ExecutorService executor;
+
+    @Autowired
+    public GrpcServer(ScanGrpcService scanGrpcService,
+                      @Value("${engine.grpc.port}") int port,
+                      @Value("${engine.grpc.threads}") int threads) {
+        this.scanGrpcService = scanGrpcService;
+        this.port = port;
+        this.threads = threads;
+    }
+
+    @Override
+    public synchronized void start() {
+        executor = Executors.newFixedThreadPool(threads);
+        server = NettyServerBuilder.forPort(port)
+                .executor(executor)
+                .addService(scanGrpcService)
+                .build();
+        try {
+            server.start();
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw new UncheckedIOException("Failed to start gRPC server on port " + port, e);
+        }
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(5, TimeUnit.SECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        server = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null && !server.isShutdown();
+    }
+
+    /**
+     * @return the port the server is listening on, useful when configured with port 0.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getPort() : port;
+    }
+}
@@ -0,0 +1,155 @@
+package org.danf.dlpengine.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.grpc.proto.DataType;
+import org.danf.dlpengine.grpc.proto.DlpScanServiceGrpc;
+import org.danf.dlpengine.grpc.proto.ScanBatchReply;
+import org.danf.dlpengine.grpc.proto.ScanBatchRequest;
+import org.danf.dlpengine.grpc.proto.ScanPayload;
+import org.danf.dlpengine.grpc.proto.ScanReply;
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.service.ScanPolicy;
+import org.danf.dlpengine.service.ScanPolicyRegistry;
+import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exposes {@link SensitiveDataScanService} over gRPC (see src/main/proto/scan.proto), applying the same validations as the REST API.
+ * Same as the REST controller, inputs are never logged.
+ */
+@Slf4j
+@Component
+public class ScanGrpcService extends DlpScanServiceGrpc.DlpScanServiceImplBase {
+
+    private final SensitiveDataScanService scanService;
+    private final ScanPolicyRegistry policyRegistry;
+    private final int maxInputLength;
+    private final int maxBatchSize;
+
+    @Autowired
+    public ScanGrpcService(SensitiveDataScanService scanService,
+                           ScanPolicyRegistry policyRegistry,
+                           @Value("${engine.limit.max-input-length}") int maxInputLength,
+                           @Value("${engine.limit.max-batch-size}") int maxBatchSize) {
+        this.scanService = scanService;
+        this.policyRegistry = policyRegistry;
+        this.maxInputLength = maxInputLength;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void scan(ScanPayload request, StreamObserver<ScanReply> responseObserver) {
+        try {
+            responseObserver.onNext(scanPayload(request));
+            responseObserver.onCompleted();
+        } catch (StatusRuntimeException e) {
+            responseObserver.onError(e);
+        }
+    }
+
+    @Override
+    public void scanBatch(ScanBatchRequest request, StreamObserver<ScanBatchReply> responseObserver) {
+        try {
+            validateBatchSize(request.getPayloadsCount());
+            var reply = ScanBatchReply.newBuilder();
+            for (var payload : request.getPayloadsList()) {
+                reply.addReplies(scanPayload(payload));
+            }
+            responseObserver.onNext(reply.build());
+            responseObserver.onCompleted();
+        } catch (StatusRuntimeException e) {
+            responseObserver.onError(e);
+        }
+    }
+
+    @Override
+    public StreamObserver<ScanPayload> scanStream(StreamObserver<ScanBatchReply> responseObserver) {
+        return new StreamObserver<>() {
+            private final List<ScanReply> replies = new ArrayList<>();
+            private boolean failed;
+
+            @Override
+            public void onNext(ScanPayload payload) {
+                if (failed) {
+                    return;
+                }
+                try {
+                    validateBatchSize(replies.size() + 1);
+                    replies.add(scanPayload(payload));
+                } catch (StatusRuntimeException e) {
+                    failed = true;
+                    responseObserver.onError(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("Scan stream cancelled by client: {}", Status.fromThrowable(t));
+            }
+
+            @Override
+            public void onCompleted() {
+                if (!failed) {
+                    responseObserver.onNext(ScanBatchReply.newBuilder().addAllReplies(replies).build());
+                    responseObserver.onCompleted();
+                }
+            }
+        };
+    }
+
+    private ScanReply scanPayload(ScanPayload payload) {
+        var text = payload.getData().toStringUtf8();
+        if (text.isBlank()) {
+            throw Status.INVALID_ARGUMENT.withDescription("The 'data' field must be specified.").asRuntimeException();
+        } else if (text.length() > maxInputLength) {
+            throw Status.INVALID_ARGUMENT.withDescription("Input exceeds max allowed body size (" + maxInputLength + " characters).").asRuntimeException();
+        }
+        ScanPolicy policy;
+        try {
+            policy = policyRegistry.getPolicy(payload.getPolicy());
+        } catch (ResponseStatusException e) {
+            throw Status.INVALID_ARGUMENT.withDescription(e.getReason()).asRuntimeException();
+        }
+        return toProto(scanService.scan(text, policy));
+    }
+
+    private void validateBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw Status.INVALID_ARGUMENT.withDescription("Batch exceeds max allowed size (" + maxBatchSize + " payloads).").asRuntimeException();
+        }
+    }
+
+    static ScanReply toProto(ScanResults scanResults) {
+        var reply = ScanReply.newBuilder();
+        if (scanResults.getResults() != null) {
+            for (var result : scanResults.getResults()) {
+                var protoResult = reply.addResultsBuilder()
+                        .setType(result.getType() == null ? DataType.DATA_TYPE_UNSPECIFIED : DataType.valueOf(result.getType().name()))
+                        .setCount(result.getCount())
+                        .setContextRank(result.getContextRank());
+                if (result.getDistinctCount() != null) {
+                    protoResult.setDistinctCount(result.getDistinctCount());
+                }
+                if (result.getTopValues() != null) {
+                    result.getTopValues().forEach(value -> protoResult.addTopValuesBuilder()
+                            .setId(value.getId())
+                            .setCount(value.getCount())
+                            .setError(value.getError()));
+                }
+            }
+        }
+        if (scanResults.getErrors() != null) {
+            reply.putAllErrors(scanResults.getErrors());
+        }
+        return reply.build();
+    }
+}
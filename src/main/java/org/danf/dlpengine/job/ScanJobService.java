@@ -0,0 +1,320 @@
+package org.danf.dlpengine.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.ScanJob;
+import org.danf.dlpengine.model.ScanJobStatus;
+import org.danf.dlpengine.model.ScanRequest;
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.service.SampledScanService;
+import org.danf.dlpengine.service.ScanPolicyRegistry;
+import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.danf.dlpengine.service.ShardedScanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs file scans as asynchronous jobs, so that scanning a big file doesn't hold an HTTP connection and a request thread for its whole duration.
+ * <p>
+ * - Jobs run on a fixed size worker pool taking the highest priority job first (submission order within the same priority). The number of queued
+ *   jobs is bounded, submissions beyond it are rejected rather than piling up.
+ * - Running jobs report their progress (bytes scanned and partial results) as they go, except for sampled and sharded ones which only report their
+ *   final results.
+ * - Every job is persisted to a local {@link ScanJobStore}. On startup, finished jobs are loaded back and queued or interrupted ones are re-queued
+ *   (an interrupted job starts over, there's no way to resume a scan midway).
+ * - Submitting the same file version (same path, size and modification time) with the same options as an existing job (that didn't fail) returns
+ *   the existing job instead of scanning the file again.
+ */
+@Slf4j
+@Lazy(false) // Interrupted jobs are re-queued on startup, not on first use
+@Service
+public class ScanJobService {
+
+    // Don't rewrite the job's file on every chunk
+    private static final long PROGRESS_PERSIST_INTERVAL_MILLIS = 1000;
+
+    private final SensitiveDataScanService scanService;
+    private final SampledScanService sampledScanService;
+    private final ShardedScanService shardedScanService;
+    private final ScanPolicyRegistry policyRegistry;
+    private final ScanJobStore store;
+    private final int queueCapacity;
+    private final Duration retention;
+
+    private final Map<String, ScanJob> jobs = new ConcurrentHashMap<>();
+    // dedup key -> job id
+    private final Map<String, String> jobsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong submissionSequence = new AtomicLong();
+    private final ThreadPoolExecutor workers;
+    private volatile boolean stopping;
+
+    @Autowired
+    public ScanJobService(SensitiveDataScanService scanService,
+                          SampledScanService sampledScanService,
+                          ShardedScanService shardedScanService,
+                          ScanPolicyRegistry policyRegistry,
+                          ObjectMapper mapper,
+                          @Value("${engine.jobs.store-directory}") String storeDirectory,
+                          @Value("${engine.jobs.workers}") int workerCount,
+                          @Value("${engine.jobs.queue-capacity}") int queueCapacity,
+                          @Value("${engine.jobs.retention}") Duration retention) {
+        this.scanService = scanService;
+        this.sampledScanService = sampledScanService;
+        this.shardedScanService = shardedScanService;
+        this.policyRegistry = policyRegistry;
+        this.store = new ScanJobStore(Path.of(storeDirectory), mapper);
+        this.queueCapacity = queueCapacity;
+        this.retention = retention;
+        var threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "scan-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        recover();
+    }
+
+    /**
+     * Assumption: REST controller already validated file at path exists.
+     *
+     * @return the new job, or the existing one if the same file was already submitted with the same options.
+     */
+    public synchronized ScanJob submit(ScanRequest request) {
+        // Fail unknown policies on submission rather than when the job runs
+        policyRegistry.getPolicy(request.getPolicy());
+        purgeExpired();
+
+        Path path;
+        long size;
+        long lastModified;
+        try {
+            path = Path.of(request.getFilePath()).toRealPath();
+            size = Files.size(path);
+            lastModified = Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ioe) {
+            log.error("Failed to read file at path '{}' : '{}'", request.getFilePath(), ioe);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read file at given path.");
+        }
+
+        var job = ScanJob.builder()
+                .id(UUID.randomUUID().toString())
+                .status(ScanJobStatus.QUEUED)
+                .filePath(path.toString())
+                .policy(StringUtils.hasText(request.getPolicy()) ? request.getPolicy() : null)
+                .sample(request.isSample())
+                .sharded(request.isSharded())
+                .priority(request.getPriority())
+                .totalBytes(size)
+                .fileLastModified(lastModified)
+                .submittedAt(System.currentTimeMillis())
+                .build();
+
+        var existing = findDuplicate(job);
+        if (existing != null) {
+            log.info("Coalescing submission into existing scan job '{}'", existing.getId());
+            return snapshot(existing);
+        }
+        if (workers.getQueue().size() >= queueCapacity) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Scan job queue is full, try again later.");
+        }
+
+        jobs.put(job.getId(), job);
+        jobsByKey.put(dedupKey(job), job.getId());
+        store.save(job);
+        enqueue(job);
+        log.info("Queued scan job '{}' with priority {}", job.getId(), job.getPriority());
+        return snapshot(job);
+    }
+
+    /**
+     * @throws ResponseStatusException (not found) if there's no such job.
+     */
+    public ScanJob getJob(String jobId) {
+        var job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Scan job not found: " + jobId);
+        }
+        return snapshot(job);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs are left as they are in the store, and re-queued on the next startup
+        stopping = true;
+        workers.shutdownNow();
+    }
+
+    private void run(ScanJob job) {
+        update(job, j -> {
+            j.setStatus(ScanJobStatus.RUNNING);
+            j.setStartedAt(System.currentTimeMillis());
+        });
+        try {
+            var policy = policyRegistry.getPolicy(job.getPolicy());
+            ScanResults results;
+            if (job.isSample()) {
+                results = sampledScanService.scanFile(job.getFilePath(), policy);
+            } else if (job.isSharded()) {
+                results = shardedScanService.scanFile(job.getFilePath(), policy);
+            } else {
+                var lastPersisted = new AtomicLong(System.currentTimeMillis());
+                results = scanService.scanFile(job.getFilePath(), policy, (bytesScanned, totalBytes, partialResults) -> {
+                    var now = System.currentTimeMillis();
+                    var persist = now - lastPersisted.get() >= PROGRESS_PERSIST_INTERVAL_MILLIS;
+                    if (persist) {
+                        lastPersisted.set(now);
+                    }
+                    update(job, j -> {
+                        j.setBytesScanned(bytesScanned);
+                        j.setResults(partialResults);
+                    }, persist);
+                });
+            }
+            update(job, j -> {
+                j.setStatus(ScanJobStatus.DONE);
+                j.setBytesScanned(results.getBytesScanned() != null ? results.getBytesScanned() : j.getTotalBytes());
+                j.setResults(results);
+                j.setFinishedAt(System.currentTimeMillis());
+            });
+            log.info("Scan job '{}' done", job.getId());
+        } catch (Exception e) {
+            if (stopping) {
+                return;
+            }
+            log.error("Scan job '{}' failed", job.getId(), e);
+            var error = e instanceof ResponseStatusException ? ((ResponseStatusException) e).getReason() : e.getMessage();
+            update(job, j -> {
+                j.setStatus(ScanJobStatus.FAILED);
+                j.setError(error);
+                j.setFinishedAt(System.currentTimeMillis());
+            });
+        }
+    }
+
+    private void recover() {
+        int requeued = 0;
+        for (var job : store.loadAll()) {
+            jobs.put(job.getId(), job);
+            // Files load in no particular order, a failed job mustn't replace another one of the same file that didn't fail
+            var existingId = jobsByKey.get(dedupKey(job));
+            var existing = existingId == null ? null : jobs.get(existingId);
+            if (existing == null || existing.getStatus() == ScanJobStatus.FAILED || job.getStatus() != ScanJobStatus.FAILED) {
+                jobsByKey.put(dedupKey(job), job.getId());
+            }
+            if (!job.getStatus().isFinished()) {
+                job.setStatus(ScanJobStatus.QUEUED);
+                job.setBytesScanned(0);
+                job.setResults(null);
+                job.setStartedAt(null);
+                store.save(job);
+                enqueue(job);
+                requeued++;
+            }
+        }
+        purgeExpired();
+        log.info("Loaded {} scan jobs, {} re-queued", jobs.size(), requeued);
+    }
+
+    private ScanJob findDuplicate(ScanJob job) {
+        var existingId = jobsByKey.get(dedupKey(job));
+        var existing = existingId == null ? null : jobs.get(existingId);
+        if (existing == null || snapshot(existing).getStatus() == ScanJobStatus.FAILED) {
+            return null;
+        }
+        return existing;
+    }
+
+    private void purgeExpired() {
+        var cutoff = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> {
+            var snapshot = snapshot(job);
+            var expired = snapshot.getStatus().isFinished() && snapshot.getFinishedAt() != null && snapshot.getFinishedAt() < cutoff;
+            if (expired) {
+                jobsByKey.remove(dedupKey(snapshot), snapshot.getId());
+                store.delete(snapshot.getId());
+            }
+            return expired;
+        });
+    }
+
+    private void enqueue(ScanJob job) {
+        workers.execute(new JobTask(job, job.getPriority(), submissionSequence.incrementAndGet()));
+    }
+
+    private void update(ScanJob job, Consumer<ScanJob> change) {
+        update(job, change, true);
+    }
+
+    /**
+     * Changes are made to a copy of the job, which is persisted before it replaces the job clients see - so a state a client has seen (e.g. done)
+     * isn't lost to a crash right after. Only the job's worker updates a running job.
+     */
+    private void update(ScanJob job, Consumer<ScanJob> change, boolean persist) {
+        var updated = snapshot(jobs.getOrDefault(job.getId(), job));
+        change.accept(updated);
+        if (persist) {
+            store.save(updated);
+        }
+        jobs.put(updated.getId(), updated);
+    }
+
+    private static ScanJob snapshot(ScanJob job) {
+        synchronized (job) {
+            return job.toBuilder().build();
+        }
+    }
+
+    private static String dedupKey(ScanJob job) {
+        return String.join("|", job.getFilePath(), String.valueOf(job.getTotalBytes()), String.valueOf(job.getFileLastModified()),
+                String.valueOf(job.getPolicy()), String.valueOf(job.isSample()), String.valueOf(job.isSharded()));
+    }
+
+    /**
+     * Orders the worker pool's queue, highest priority first and then by submission order.
+     */
+    private class JobTask implements Runnable, Comparable<JobTask> {
+
+        private final ScanJob job;
+        private final int priority;
+        private final long sequence;
+
+        JobTask(ScanJob job, int priority, long sequence) {
+            this.job = job;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            ScanJobService.this.run(job);
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
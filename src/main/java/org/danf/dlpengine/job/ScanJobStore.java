@@ -0,0 +1,79 @@
+package org.danf.dlpengine.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.ScanJob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists scan jobs to a local directory, one JSON file per job, so queued and finished jobs survive a restart.
+ * <p>
+ * Each write goes to a temp file which is then atomically moved over the job's file, so a crash mid-write never leaves a corrupt job behind.
+ * A file per job keeps writes small and independent of the number of jobs, which is all this needs - there are no queries other than loading
+ * everything at startup.
+ */
+@Slf4j
+class ScanJobStore {
+
+    private static final String JOB_FILE_SUFFIX = ".json";
+
+    private final Path directory;
+    private final ObjectMapper mapper;
+
+    ScanJobStore(Path directory, ObjectMapper mapper) {
+        this.directory = directory;
+        this.mapper = mapper;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create job store directory " + directory, e);
+        }
+    }
+
+    void save(ScanJob job) {
+        var target = jobFile(job.getId());
+        var temp = directory.resolve(job.getId() + ".tmp");
+        try {
+            mapper.writeValue(temp.toFile(), job);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The job itself is still tracked in memory, it just won't survive a restart
+            log.error("Failed to persist scan job '{}'", job.getId(), e);
+        }
+    }
+
+    void delete(String jobId) {
+        try {
+            Files.deleteIfExists(jobFile(jobId));
+        } catch (IOException e) {
+            log.error("Failed to delete scan job '{}'", jobId, e);
+        }
+    }
+
+    List<ScanJob> loadAll() {
+        var jobs = new ArrayList<ScanJob>();
+        try (var files = Files.newDirectoryStream(directory, "*" + JOB_FILE_SUFFIX)) {
+            for (var file : files) {
+                try {
+                    jobs.add(mapper.readValue(file.toFile(), ScanJob.class));
+                } catch (IOException e) {
+                    log.error("Skipping unreadable scan job file '{}'", file, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read job store directory " + directory, e);
+        }
+        return jobs;
+    }
+
+    private Path jobFile(String jobId) {
+        return directory.resolve(jobId + JOB_FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,25 @@
+package org.danf.dlpengine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+
+/**
+ * Bounds of a requested recording, see {@link org.danf.dlpengine.profiling.RecordingService#start(RecordingOptions)}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordingOptions {
+
+    // How much of the latest data to keep, e.g. "PT5M"
+    private Duration maxAge;
+    // In bytes
+    private Long maxSize;
+    // Scanner scans taking less than this aren't recorded, e.g. "PT0.001S"
+    private Duration threshold;
+}
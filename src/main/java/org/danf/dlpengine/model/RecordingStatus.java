@@ -0,0 +1,23 @@
+package org.danf.dlpengine.model;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.Duration;
+
+@Value
+@Builder
+@Jacksonized
+public class RecordingStatus {
+
+    String state;
+    // Epoch millis, absent until started
+    Long startTime;
+    Duration maxAge;
+    long maxSize;
+    // Bytes recorded so far
+    long size;
+    // Of the scanner scan events
+    Duration threshold;
+}
@@ -0,0 +1,41 @@
+package org.danf.dlpengine.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * An asynchronous file scan, as persisted in the job store and reported to clients polling for it.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class ScanJob {
+
+    String id;
+    ScanJobStatus status;
+    String filePath;
+    String policy;
+    boolean sample;
+    boolean sharded;
+    // Higher priority jobs are run first, jobs of the same priority run in submission order
+    int priority;
+    long totalBytes;
+    // Epoch millis, along with the size identifies the version of the file that was submitted
+    long fileLastModified;
+    long bytesScanned;
+    // Partial results while the job is running, final results once it's done
+    ScanResults results;
+    // Set if the job failed
+    String error;
+    // Epoch millis
+    long submittedAt;
+    Long startedAt;
+    Long finishedAt;
+}
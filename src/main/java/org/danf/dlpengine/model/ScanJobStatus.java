@@ -0,0 +1,13 @@
+package org.danf.dlpengine.model;
+
+public enum ScanJobStatus {
+
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -9,5 +9,16 @@ public class ScanRequest {
 
     String text = "";
     String filePath = "";
+    // Name of the policy profile to scan with, scans with all scanners if not given.
+    String policy;
+    // Only applies to file scans, estimate results from a sample of the file instead of scanning all of it.
+    boolean sample;
+    // Only applies to scan jobs, higher priority jobs are run first.
+    int priority;
+    // Only applies to file scans, split the file into ranges scanned by the peer nodes of the cluster.
+    boolean sharded;
+    // Only applies to range scans, the byte range [rangeStart, rangeEnd) of the file to scan.
+    long rangeStart;
+    long rangeEnd;
 
 }
@@ -2,11 +2,15 @@ package org.danf.dlpengine.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
+@Jacksonized
 @JsonInclude(Include.NON_NULL)
 public class ScanResult {
 
@@ -15,4 +19,15 @@ public class ScanResult {
     int count;
     //Rank based on found context keywords, if any.
     int contextRank;
+    // Only set for sampled scans, where count and contextRank are what was observed in the sample.
+    // Estimated count of matches in the whole input along with its 95% confidence bounds.
+    Long estimatedCount;
+    Long estimatedCountLower;
+    Long estimatedCountUpper;
+    // Only set for policies with distinct-values enabled (and not for sampled scans).
+    // Estimated number of distinct values matched, and the most frequent ones.
+    Long distinctCount;
+    List<ValueCount> topValues;
+    // Only set in unfiltered results (see ScanResultAccumulator#toUnfilteredScanResults()), the mergeable state of the above.
+    byte[] valueSketch;
 }
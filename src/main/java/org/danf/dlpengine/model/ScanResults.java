@@ -3,6 +3,7 @@ package org.danf.dlpengine.model;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 import java.util.Map;
@@ -11,10 +12,15 @@ import static com.fasterxml.jackson.annotation.JsonInclude.Include;
 
 @Value
 @Builder
+@Jacksonized
 @JsonInclude(Include.NON_NULL)
 public class ScanResults {
 
     List<ScanResult> results;
     // maps scanner name to error
     Map<String, String> errors;
+    // Only set for sampled file scans, true if results are estimates from a sample (false if a full scan was done instead)
+    Boolean sampled;
+    Long bytesScanned;
+    Long totalBytes;
 }
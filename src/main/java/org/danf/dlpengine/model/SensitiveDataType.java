@@ -3,7 +3,10 @@ package org.danf.dlpengine.model;
 public enum  SensitiveDataType {
 
     SSN("Social Security Number"),
-    IBAN("IBAN Bank Account Code");
+    IBAN("IBAN Bank Account Code"),
+    // Exact data match, values found in the index of known sensitive values (see ExactDataMatchScanner)
+    KNOWN_SSN("Known Social Security Number"),
+    KNOWN_IBAN("Known IBAN Bank Account Code");
 
     private final String name;
 
@@ -0,0 +1,20 @@
+package org.danf.dlpengine.model;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * A frequently matched value, identified by its salted fingerprint rather than the value itself.
+ */
+@Value
+@Builder
+@Jacksonized
+public class ValueCount {
+
+    // Hex salted fingerprint of the value
+    String id;
+    // Approximate number of times the value was matched, an overestimate by at most error (the true count is within [count - error, count])
+    long count;
+    long error;
+}
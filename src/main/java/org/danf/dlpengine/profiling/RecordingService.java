@@ -0,0 +1,177 @@
+package org.danf.dlpengine.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.RecordingOptions;
+import org.danf.dlpengine.model.RecordingStatus;
+import org.danf.dlpengine.scanner.ScannerScanEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Manages a single, bounded, JFR recording of the engine on demand, to find out what's behind slow scans in production without restarting it with
+ * profiling flags. Recordings hold the JDK's default (low overhead) events along with the engine's scan events (see {@link ScannerScanEvent}).
+ * <p>
+ * A recording is continuous until stopped, only keeping its last engine.profiling.max-age / engine.profiling.max-size of data, and can be dumped at any
+ * point while running.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Scanner events are very frequent (one per scanner per input), so they are only recorded when taking longer than a threshold - slow scans are what's
+ * interesting, and committing an event per fast scan would cost more than the scan itself.
+ * The JDK events recording the process' environment variables, system properties and command line are disabled, these might hold secrets such as
+ * the EDM salt (see {@link org.danf.dlpengine.config.EdmConfig}).
+ */
+@Slf4j
+@Service
+public class RecordingService {
+
+    static final String RECORDING_NAME = "dlp-engine";
+    private static final List<String> DISABLED_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final Duration defaultThreshold;
+
+    private Recording recording;
+    private Duration threshold;
+
+    @Autowired
+    public RecordingService(@Value("${engine.profiling.max-age}") Duration maxAge,
+                            @Value("${engine.profiling.max-size}") DataSize maxSize,
+                            @Value("${engine.profiling.scan-event-threshold}") Duration defaultThreshold) {
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    /**
+     * @param options bounds of the recording, within the configured max age and size; absent options are set to their max / default.
+     * @throws ResponseStatusException when a recording is already running, or on invalid options.
+     */
+    public synchronized RecordingStatus start(RecordingOptions options) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A recording is already running.");
+        }
+        var age = bounded(options.getMaxAge(), maxAge, "maxAge");
+        var size = options.getMaxSize() == null ? maxSize.toBytes() : Math.min(options.getMaxSize(), maxSize.toBytes());
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxSize must be positive.");
+        }
+        var threshold = options.getThreshold() == null ? defaultThreshold : options.getThreshold();
+        if (threshold.isNegative()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "threshold must not be negative.");
+        }
+
+        close();
+        Recording newRecording;
+        try {
+            newRecording = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException | ParseException e) {
+            log.error("Failed to load the JFR default configuration", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to start recording.");
+        }
+        newRecording.setName(RECORDING_NAME);
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(age);
+        newRecording.setMaxSize(size);
+        newRecording.enable(ScannerScanEvent.NAME).withThreshold(threshold);
+        DISABLED_EVENTS.forEach(newRecording::disable);
+        newRecording.start();
+        recording = newRecording;
+        this.threshold = threshold;
+        log.info("Started recording (max age {}, max size {} bytes, scan event threshold {})", age, size, threshold);
+        return toStatus(recording);
+    }
+
+    /**
+     * @return the status of the current (or last stopped) recording.
+     * @throws ResponseStatusException when there's no recording.
+     */
+    public synchronized RecordingStatus getStatus() {
+        return toStatus(current());
+    }
+
+    /**
+     * Dumps the recorded data so far into a new temporary file, the caller is responsible for deleting it. The recording goes on running.
+     *
+     * @throws ResponseStatusException when there's no recording, or it has no data.
+     */
+    public synchronized Path dump() {
+        var current = current();
+        if (current.getState() != RecordingState.RUNNING && current.getState() != RecordingState.STOPPED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Recording has no data to dump.");
+        }
+        try {
+            var file = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+            current.dump(file);
+            return file;
+        } catch (IOException e) {
+            log.error("Failed to dump recording", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to dump recording.");
+        }
+    }
+
+    /**
+     * Stops the current recording, its data can still be dumped until the next one is started.
+     *
+     * @throws ResponseStatusException when there's no recording.
+     */
+    public synchronized RecordingStatus stop() {
+        var current = current();
+        if (current.getState() == RecordingState.RUNNING) {
+            current.stop();
+            log.info("Stopped recording");
+        }
+        return toStatus(current);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private Recording current() {
+        if (recording == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No recording.");
+        }
+        return recording;
+    }
+
+    private static Duration bounded(Duration requested, Duration max, String name) {
+        if (requested == null) {
+            return max;
+        }
+        if (requested.isNegative() || requested.isZero()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " must be positive.");
+        }
+        return requested.compareTo(max) > 0 ? max : requested;
+    }
+
+    private RecordingStatus toStatus(Recording recording) {
+        return RecordingStatus.builder()
+                .state(recording.getState().name())
+                .startTime(recording.getStartTime() == null ? null : recording.getStartTime().toEpochMilli())
+                .maxAge(recording.getMaxAge())
+                .maxSize(recording.getMaxSize())
+                .size(recording.getSize())
+                .threshold(threshold)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package org.danf.dlpengine.rest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.RecordingOptions;
+import org.danf.dlpengine.model.RecordingStatus;
+import org.danf.dlpengine.profiling.RecordingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Starts, dumps and stops JFR recordings of the engine (see {@link RecordingService}), can be turned off with engine.profiling.enabled=false.
+ */
+@Slf4j
+@RestController
+@RequestMapping(path = "/api/v1/profiling")
+@ConditionalOnProperty(value = "engine.profiling.enabled", havingValue = "true", matchIfMissing = true)
+public class ProfilingController {
+
+    private final RecordingService recordingService;
+
+    @Autowired
+    public ProfilingController(RecordingService recordingService) {
+        this.recordingService = recordingService;
+    }
+
+    @PostMapping(
+            value = "/recording",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ResponseStatus(HttpStatus.CREATED)
+    public RecordingStatus startRecording(@RequestBody(required = false) RecordingOptions options) {
+        return recordingService.start(options == null ? new RecordingOptions() : options);
+    }
+
+    @GetMapping(
+            value = "/recording",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public RecordingStatus getRecording() {
+        return recordingService.getStatus();
+    }
+
+    /**
+     * Responds with the recorded data so far as a .jfr file (open with JDK Mission Control or 'jfr print').
+     */
+    @GetMapping(value = "/recording/dump")
+    public void dumpRecording(HttpServletResponse response) throws IOException {
+        var file = recordingService.dump();
+        try {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(Files.size(file));
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"dlp-engine.jfr\"");
+            Files.copy(file, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @DeleteMapping(
+            value = "/recording",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public RecordingStatus stopRecording() {
+        return recordingService.stop();
+    }
+}
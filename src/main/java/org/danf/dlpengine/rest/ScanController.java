@@ -2,16 +2,25 @@ package org.danf.dlpengine.rest;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.util.Strings;
+import org.danf.dlpengine.job.ScanJobService;
+import org.danf.dlpengine.model.ScanJob;
 import org.danf.dlpengine.model.ScanRequest;
 import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.service.SampledScanService;
+import org.danf.dlpengine.service.ScanPolicyRegistry;
 import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.danf.dlpengine.service.ShardedScanService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -24,6 +33,7 @@ import java.util.Optional;
  * A controller for exposing this service's functionality via REST API.
  */
 @Slf4j
+@Lazy(false) // Part of the scanning path, see application-prod.yml
 @RestController
 @RequestMapping(path = "/api/v1")
 public class ScanController {
@@ -35,10 +45,22 @@ public class ScanController {
     private HttpServletRequest httpRequest;
 
     private final SensitiveDataScanService scanService;
+    private final SampledScanService sampledScanService;
+    private final ShardedScanService shardedScanService;
+    private final ScanPolicyRegistry policyRegistry;
+    private final ScanJobService jobService;
 
     @Autowired
-    public ScanController(SensitiveDataScanService scanService) {
+    public ScanController(SensitiveDataScanService scanService,
+                          SampledScanService sampledScanService,
+                          ShardedScanService shardedScanService,
+                          ScanPolicyRegistry policyRegistry,
+                          ScanJobService jobService) {
         this.scanService = scanService;
+        this.sampledScanService = sampledScanService;
+        this.shardedScanService = shardedScanService;
+        this.policyRegistry = policyRegistry;
+        this.jobService = jobService;
     }
 
     @PostMapping(
@@ -48,11 +70,12 @@ public class ScanController {
     )
     public ScanResults scanBody(@RequestBody ScanRequest scanRequest) {
         validateScanBodyRequest(scanRequest);
+        var policy = policyRegistry.getPolicy(scanRequest.getPolicy());
         // Can also add trace information to the request to enable cross-service request tracing, but I don't want to log the input itself for fear of leaking
         // sensitive information into production logs.
         log.info("Scanning incoming request from '{}'", httpRequest.getRemoteAddr());
         // Spring automagically discovers Jackson2 on the classpath and lets it handle response serialization
-        return scanService.scan(scanRequest.getText());
+        return scanService.scan(scanRequest.getText(), policy);
     }
 
     /**
@@ -77,7 +100,62 @@ public class ScanController {
     public ScanResults scanFile(@RequestBody ScanRequest scanRequest) {
         log.info("Scanning incoming request from '{}'", httpRequest.getRemoteAddr());
         validateScanFileRequest(scanRequest);
-        return scanService.scanFile(scanRequest.getFilePath());
+        validateScanFileOptions(scanRequest);
+        var policy = policyRegistry.getPolicy(scanRequest.getPolicy());
+        if (scanRequest.isSample()) {
+            return sampledScanService.scanFile(scanRequest.getFilePath(), policy);
+        } else if (scanRequest.isSharded()) {
+            return shardedScanService.scanFile(scanRequest.getFilePath(), policy);
+        }
+        return scanService.scanFile(scanRequest.getFilePath(), policy);
+    }
+
+    /**
+     * Scans a byte range of a file on behalf of a node coordinating a sharded scan (see {@link ShardedScanService}), returning unfiltered results.
+     */
+    @PostMapping(
+            value = "/scan/range",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ScanResults scanRange(@RequestBody ScanRequest scanRequest) {
+        log.info("Scanning file range for incoming request from '{}'", httpRequest.getRemoteAddr());
+        validateScanFileRequest(scanRequest);
+        if (scanRequest.getRangeStart() < 0 || scanRequest.getRangeEnd() <= scanRequest.getRangeStart()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The 'rangeStart' and 'rangeEnd' fields must specify a non-empty range.");
+        }
+        var policy = policyRegistry.getPolicy(scanRequest.getPolicy());
+        return scanService.scanRange(scanRequest.getFilePath(), policy, scanRequest.getRangeStart(), scanRequest.getRangeEnd());
+    }
+
+    /**
+     * Same as {@link #scanFile(ScanRequest)}, but returns right away with a job to poll for progress and results.
+     */
+    @PostMapping(
+            value = "/scan/jobs",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ScanJob submitScanJob(@RequestBody ScanRequest scanRequest) {
+        log.info("Submitting scan job for incoming request from '{}'", httpRequest.getRemoteAddr());
+        validateScanFileRequest(scanRequest);
+        validateScanFileOptions(scanRequest);
+        return jobService.submit(scanRequest);
+    }
+
+    @GetMapping(
+            value = "/scan/jobs/{jobId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ScanJob getScanJob(@PathVariable String jobId) {
+        return jobService.getJob(jobId);
+    }
+
+    private void validateScanFileOptions(ScanRequest scanRequest) {
+        if (scanRequest.isSample() && scanRequest.isSharded()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A file scan can't be both sampled and sharded.");
+        }
     }
 
     private void validateScanFileRequest(ScanRequest scanRequest) {
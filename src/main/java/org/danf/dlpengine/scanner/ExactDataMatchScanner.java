@@ -0,0 +1,58 @@
+package org.danf.dlpengine.scanner;
+
+import org.danf.dlpengine.edm.FingerprintIndex;
+import org.danf.dlpengine.model.SensitiveDataType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Exact data match (EDM): scans for values that aren't just syntactically valid but are actually known sensitive values, e.g. real customers' SSNs.
+ * Candidates are found with the same pattern as the corresponding regular scanner and are then looked up in a {@link FingerprintIndex} of the known
+ * values (which only holds salted fingerprints, never the values themselves).
+ * <p>
+ * Only created when an index is configured, see {@link org.danf.dlpengine.config.EdmConfig}.
+ */
+public class ExactDataMatchScanner extends SensitiveDataScanner {
+
+    private final FingerprintIndex index;
+    // The type the index holds the values as
+    private final SensitiveDataType valueType;
+    private final String name;
+
+    private ExactDataMatchScanner(List<String> contextKeywords, Pattern candidatePattern, int candidateMaxLength, SensitiveDataType dataType,
+                                  SensitiveDataType valueType, FingerprintIndex index, String name) {
+        super(contextKeywords, candidatePattern, candidateMaxLength, dataType);
+        this.index = index;
+        this.valueType = valueType;
+        this.name = name;
+    }
+
+    public static ExactDataMatchScanner knownSocialSecurityNumbers(FingerprintIndex index) {
+        return new ExactDataMatchScanner(SocialSecurityNumberScanner.SOCIAL_SECURITY_NUMBER_KEYWORDS, SocialSecurityNumberScanner.SOCIAL_SECURITY_NUMBER_PATTERN,
+                SocialSecurityNumberScanner.SOCIAL_SECURITY_NUMBER_MAX_LENGTH, SensitiveDataType.KNOWN_SSN, SensitiveDataType.SSN, index,
+                "Known Social Security Number Scanner");
+    }
+
+    public static ExactDataMatchScanner knownIbans(FingerprintIndex index) {
+        return new ExactDataMatchScanner(Collections.emptyList(), IbanScanner.IBAN_PATTERN, IbanScanner.IBAN_MAX_LENGTH, SensitiveDataType.KNOWN_IBAN,
+                SensitiveDataType.IBAN, index, "Known IBAN scanner");
+    }
+
+    @Override
+    protected boolean isValidMatch(Matcher matcher) {
+        return index.contains(valueType, matcher.group());
+    }
+
+    @Override
+    public SensitiveDataType getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public String scannerName() {
+        return name;
+    }
+}
@@ -33,15 +33,48 @@ public class IbanScanner extends SensitiveDataScanner {
      * Capture group 1 holds the entire captured IBAN string, to be used in the validation.
      */
     protected final static Pattern IBAN_PATTERN = Pattern.compile("([a-zA-z]{2}\\d{2} ?(:?\\w{4} ?){1,7} ?(:?\\w{1,3})?)", Pattern.CASE_INSENSITIVE);
+    // Country code, check digits and space (5), 7 groups of up to 6 chars (an optional ':', four chars and a space), a space and the last group of up to 4
+    protected final static int IBAN_MAX_LENGTH = 5 + 7 * 6 + 1 + 4;
 
     public IbanScanner() {
-        super(Collections.emptyList(), IBAN_PATTERN, SensitiveDataType.IBAN);
+        super(Collections.emptyList(), IBAN_PATTERN, IBAN_MAX_LENGTH, SensitiveDataType.IBAN);
     }
 
     @Override
     public boolean isValidMatch(Matcher matcher) {
         // This verifies the IBAN checksum, as per https://en.wikipedia.org/wiki/International_Bank_Account_Number#Modulo_operation_on_IBAN
-        return Modulo97.verifyCheckDigits(matcher.group(1));
+        return verifyCheckDigits(matcher.group(1));
+    }
+
+    /**
+     * Same as java-iban's {@link Modulo97#verifyCheckDigits(CharSequence)} - including rejecting invalid characters with an IllegalArgumentException.
+     * <p>
+     * IMPLEMENTATION NOTES:
+     * Modulo97 builds the rearranged IBAN as a number string and takes its remainder as a BigInteger, allocating about half a KB per candidate. Here the
+     * remainder is taken digit by digit instead (the value of each digit appended is (remainder * 10 + digit) mod 97), which allocates nothing.
+     * The pattern guarantees the candidate is long enough.
+     */
+    static boolean verifyCheckDigits(CharSequence iban) {
+        // Country code and check digits are moved to the end
+        var remainder = mod97(iban, 4, iban.length(), 0);
+        return mod97(iban, 0, 4, remainder) == 1;
+    }
+
+    private static int mod97(CharSequence iban, int start, int end, int remainder) {
+        for (int i = start; i < end; i++) {
+            var c = iban.charAt(i);
+            if (c >= '0' && c <= '9') {
+                remainder = (remainder * 10 + (c - '0')) % 97;
+            } else if (c >= 'A' && c <= 'Z') {
+                // Letters are two digits, A = 10 ... Z = 35
+                remainder = (remainder * 100 + (c - 'A' + 10)) % 97;
+            } else if (c >= 'a' && c <= 'z') {
+                remainder = (remainder * 100 + (c - 'a' + 10)) % 97;
+            } else if (c != ' ') {
+                throw new IllegalArgumentException("Invalid character '" + c + "'.");
+            }
+        }
+        return remainder;
     }
 
     @Override
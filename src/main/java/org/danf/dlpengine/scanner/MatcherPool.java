@@ -0,0 +1,41 @@
+package org.danf.dlpengine.scanner;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per thread pool of {@link Matcher}s, so that scanning an input doesn't create new matchers (and their group / local arrays) for every pattern on
+ * every request. Patterns are compiled once and shared, a matcher per pattern per thread is reused via {@link Matcher#reset(CharSequence)}.
+ * <p>
+ * Usage: {@link #acquire(Pattern, CharSequence)} a matcher, use it, and {@link #release(Matcher)} it (in a finally block) once done with it.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * A matcher is taken out of the pool while in use, so a nested acquire of the same pattern on the same thread (e.g. from a match callback) gets a
+ * new matcher rather than resetting one that is still iterating. Released matchers are reset to an empty input so the pool never holds on to the
+ * (possibly MBs large) inputs scanned between requests.
+ * The pool only grows to the number of distinct patterns used on the thread, a handful, and lookups are by identity - no hashing of the pattern.
+ */
+public final class MatcherPool {
+
+    private static final ThreadLocal<Map<Pattern, Matcher>> FREE_MATCHERS = ThreadLocal.withInitial(IdentityHashMap::new);
+
+    private MatcherPool() {
+    }
+
+    /**
+     * @return a matcher of the pattern reset to the given input, to be released once done with.
+     */
+    public static Matcher acquire(Pattern pattern, CharSequence input) {
+        var matcher = FREE_MATCHERS.get().remove(pattern);
+        return matcher == null ? pattern.matcher(input) : matcher.reset(input);
+    }
+
+    /**
+     * Returns the matcher to the current thread's pool, it must not be used afterwards.
+     */
+    public static void release(Matcher matcher) {
+        FREE_MATCHERS.get().put(matcher.pattern(), matcher.reset(""));
+    }
+}
@@ -0,0 +1,73 @@
+package org.danf.dlpengine.scanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * JFR event of a single scanner scanning a single input (see {@link SensitiveDataScanner}), to tell which scanners and inputs are behind slow scans.
+ * Only describes the input (its length, match counts), never holds any of its content.
+ * <p>
+ * Measurements are only taken while a recording has the event enabled, so it costs next to nothing otherwise.
+ */
+@Name(ScannerScanEvent.NAME)
+@Label("Scanner Scan")
+@Category({"DLP Engine", "Scans"})
+@Description("A scanner scanning a single input")
+@StackTrace(false)
+public final class ScannerScanEvent extends Event {
+
+    public static final String NAME = "org.danf.dlpengine.ScannerScan";
+
+    private static final java.lang.management.ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    @Label("Scanner")
+    String scanner;
+
+    @Label("Data Type")
+    String dataType;
+
+    @Label("Input Length")
+    @Description("Length of the input in characters")
+    int inputLength;
+
+    @Label("Candidate Matches")
+    @Description("Matches of the scanner's pattern, valid or not")
+    int candidateMatches;
+
+    @Label("Valid Matches")
+    int validMatches;
+
+    @Label("Context Rank")
+    int contextRank;
+
+    @Label("Match Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long matchDuration;
+
+    @Label("Context Rank Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long contextRankDuration;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the scanning thread during the scan, -1 if not supported by the JVM")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if the JVM can't tell.
+     */
+    static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
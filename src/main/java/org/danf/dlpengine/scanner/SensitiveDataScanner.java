@@ -6,6 +6,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.CollectionUtils;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,6 +15,9 @@ import java.util.regex.Pattern;
  * - Declare a {@link SensitiveDataType} describing the data it scans for.
  * - Declare a {@link Pattern} to match the sensitive data it scans for.
  * - Declare a {@link Pattern} to match any context keywords that might accompany the sensitive data. it is possible not to define any.
+ * <p>
+ * Scanners are shared by all requests, matchers of their patterns are pooled per thread (see {@link MatcherPool}) - so on inputs with no matches
+ * the only allocation of a scan is its result.
  */
 public abstract class SensitiveDataScanner {
 
@@ -21,12 +25,19 @@ public abstract class SensitiveDataScanner {
     private final Pattern contextKeywords;
     private final Pattern sensitiveDataRegex;
     private final SensitiveDataType dataType;
+    // Of either pattern, see getMaxMatchLength()
+    private final int maxMatchLength;
 
-    public SensitiveDataScanner(List<String> contextKeywords, Pattern sensitiveDataRegex, SensitiveDataType dataType) {
+    /**
+     * @param sensitiveDataMaxLength length of the longest text the sensitive data pattern can match
+     */
+    public SensitiveDataScanner(List<String> contextKeywords, Pattern sensitiveDataRegex, int sensitiveDataMaxLength, SensitiveDataType dataType) {
         if (CollectionUtils.isEmpty(contextKeywords)) {
                 this.contextKeywords = null;
+                this.maxMatchLength = sensitiveDataMaxLength;
         } else {
             this.contextKeywords = Pattern.compile(String.join("|", contextKeywords), Pattern.CASE_INSENSITIVE);
+            this.maxMatchLength = Math.max(sensitiveDataMaxLength, contextKeywords.stream().mapToInt(String::length).max().orElse(0));
         }
         this.sensitiveDataRegex = sensitiveDataRegex;
         this.dataType = dataType;
@@ -41,9 +52,74 @@ public abstract class SensitiveDataScanner {
      * @return {@link ScanResult} containing the type of sensitive data and the number of occurrences found in the input.
      */
     public ScanResult scan(String input) {
-        var sensitiveDataMatchesCount = countMatches(input);
-        var contextRank = calculateContextRank(input);
+        return scan(input, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Same as {@link #scan(String)}, passing every valid match to the given consumer.
+     */
+    public ScanResult scan(String input, Consumer<String> matchedValues) {
+        return scan(input, Integer.MAX_VALUE, matchedValues);
+    }
+
+    /**
+     * Same as {@link #scan(String)}, but stops matching once a single valid match is found (so the count is at most 1) - for callers only interested
+     * in whether the input contains any sensitive data at all.
+     */
+    public ScanResult scanForFirstMatch(String input) {
+        return scan(input, 0, input.length(), 1, null);
+    }
+
+    /**
+     * Same as {@link #scan(String, Consumer)}, but only counts the matches and context keywords starting within [from, to) of the input - for
+     * scanning a piece of a larger text, where the input also holds the text around the piece (see {@link #getMaxMatchLength()}) so that matches
+     * crossing its edges are matched in full, and counted by the one piece they start in.
+     */
+    public ScanResult scan(String input, int from, int to, @Nullable Consumer<String> matchedValues) {
+        return scan(input, from, to, Integer.MAX_VALUE, matchedValues);
+    }
+
+    /**
+     * Same as {@link #scanForFirstMatch(String)}, only considering the matches starting within [from, to) of the input.
+     */
+    public ScanResult scanForFirstMatch(String input, int from, int to) {
+        return scan(input, from, to, 1, null);
+    }
+
+    private ScanResult scan(String input, int maxMatches, @Nullable Consumer<String> matchedValues) {
+        return scan(input, 0, input.length(), maxMatches, matchedValues);
+    }
 
+    private ScanResult scan(String input, int from, int to, int maxMatches, @Nullable Consumer<String> matchedValues) {
+        var event = new ScannerScanEvent();
+        if (!event.isEnabled()) {
+            return result(countMatches(input, from, to, maxMatches, matchedValues, event), calculateContextRank(input, from, to));
+        }
+
+        // Profiling, see ScannerScanEvent
+        event.begin();
+        var allocatedBefore = ScannerScanEvent.currentThreadAllocatedBytes();
+        var matchStart = System.nanoTime();
+        var sensitiveDataMatchesCount = countMatches(input, from, to, maxMatches, matchedValues, event);
+        var contextRankStart = System.nanoTime();
+        var contextRank = calculateContextRank(input, from, to);
+        var contextRankEnd = System.nanoTime();
+        event.end();
+        if (event.shouldCommit()) {
+            event.scanner = scannerName();
+            event.dataType = dataType.name();
+            event.inputLength = to - from;
+            event.validMatches = sensitiveDataMatchesCount;
+            event.contextRank = contextRank;
+            event.matchDuration = contextRankStart - matchStart;
+            event.contextRankDuration = contextRankEnd - contextRankStart;
+            event.allocated = allocatedBefore < 0 ? -1 : ScannerScanEvent.currentThreadAllocatedBytes() - allocatedBefore;
+            event.commit();
+        }
+        return result(sensitiveDataMatchesCount, contextRank);
+    }
+
+    private ScanResult result(int sensitiveDataMatchesCount, int contextRank) {
         return ScanResult.builder()
                 .type(dataType)
                 .count(sensitiveDataMatchesCount)
@@ -51,19 +127,41 @@ public abstract class SensitiveDataScanner {
                 .build();
     }
 
-    private int countMatches(String input) {
+    /**
+     * Matches from the very start of the input even if counting only from a later offset, so that a match starting before it consumes its text just
+     * like in a scan of the whole text - rather than its tail being matched as a (different) match of its own.
+     */
+    private int countMatches(String input, int from, int to, int maxMatches, @Nullable Consumer<String> matchedValues, ScannerScanEvent event) {
         int count = 0;
-        var matcher = sensitiveDataRegex.matcher(input);
-        while (matcher.find()) {
-            if (isValidMatch(matcher)) {
-                count++;
+        int candidates = 0;
+        var matcher = MatcherPool.acquire(sensitiveDataRegex, input);
+        try {
+            while (count < maxMatches && matcher.find()) {
+                if (matcher.start() < from) {
+                    continue;
+                }
+                if (matcher.start() >= to) {
+                    break;
+                }
+                candidates++;
+                if (isValidMatch(matcher)) {
+                    count++;
+                    if (matchedValues != null) {
+                        matchedValues.accept(matcher.group());
+                    }
+                }
             }
+        } finally {
+            MatcherPool.release(matcher);
         }
+        event.candidateMatches = candidates;
         return count;
     }
 
     /**
      * @param input text to search for keywords in.
+     * @param from  first char of the input whose keywords are counted
+     * @param to    end (exclusive) of the chars of the input whose keywords are counted
      * @return The context rank of the input.
      * <p>
      * IMPLEMENTATION NOTES:
@@ -74,12 +172,18 @@ public abstract class SensitiveDataScanner {
      * Secondly the 'rank' in this case is simply the count of matching keywords in the input, it can be made more robust by including some
      * logic about the number of matches, where they were found etc.
      */
-    protected int calculateContextRank(String input) {
+    protected int calculateContextRank(String input, int from, int to) {
         int rank = 0;
         if (contextKeywords != null) {
-            var contextKeyWordsMatcher = contextKeywords.matcher(input);
-            while (contextKeyWordsMatcher.find()) {
-                rank++;
+            var contextKeyWordsMatcher = MatcherPool.acquire(contextKeywords, input);
+            try {
+                while (contextKeyWordsMatcher.find() && contextKeyWordsMatcher.start() < to) {
+                    if (contextKeyWordsMatcher.start() >= from) {
+                        rank++;
+                    }
+                }
+            } finally {
+                MatcherPool.release(contextKeyWordsMatcher);
             }
         }
         return rank;
@@ -91,6 +195,32 @@ public abstract class SensitiveDataScanner {
      */
     protected abstract boolean isValidMatch(Matcher matcher);
 
+    public SensitiveDataType getDataType() {
+        return dataType;
+    }
+
+    /**
+     * @return the type of the values this scanner matches, which is its data type unless it reports those values as a type of their own.
+     */
+    public SensitiveDataType getValueType() {
+        return dataType;
+    }
+
+    public Pattern getSensitiveDataPattern() {
+        return sensitiveDataRegex;
+    }
+
+    /**
+     * @return length of the longest text a match of either the sensitive data pattern or the context keywords can span. Text split into pieces must
+     * be scanned with this many chars past each piece's end, so that a match starting in the piece isn't cut short.
+     * <p>
+     * IMPLEMENTATION NOTES:
+     * The patterns only match ASCII chars (no Pattern.UNICODE_CHARACTER_CLASS / UNICODE_CASE), so this is also their max length in UTF-8 bytes.
+     */
+    public int getMaxMatchLength() {
+        return maxMatchLength;
+    }
+
     /**
      * Used to map errors in responses
      */
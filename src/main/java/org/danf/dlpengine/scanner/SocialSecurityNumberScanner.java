@@ -20,10 +20,12 @@ import java.util.regex.Pattern;
 public class SocialSecurityNumberScanner extends SensitiveDataScanner {
 
     protected final static Pattern SOCIAL_SECURITY_NUMBER_PATTERN = Pattern.compile("\\d{3}[ -]\\d{2}[ -]\\d{4}|\\d{9}");
+    // ddd-dd-dddd
+    protected final static int SOCIAL_SECURITY_NUMBER_MAX_LENGTH = 11;
     protected final static List<String> SOCIAL_SECURITY_NUMBER_KEYWORDS = List.of("SSNS", "SS#", "SSN#", "SSN", "SSID", "Soc Sec", "Social Security", "Social Security#");
 
     public SocialSecurityNumberScanner() {
-        super(SOCIAL_SECURITY_NUMBER_KEYWORDS, SOCIAL_SECURITY_NUMBER_PATTERN, SensitiveDataType.SSN);
+        super(SOCIAL_SECURITY_NUMBER_KEYWORDS, SOCIAL_SECURITY_NUMBER_PATTERN, SOCIAL_SECURITY_NUMBER_MAX_LENGTH, SensitiveDataType.SSN);
     }
 
     @Override
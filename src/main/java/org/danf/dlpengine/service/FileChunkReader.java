@@ -0,0 +1,182 @@
+package org.danf.dlpengine.service;
+
+import lombok.Value;
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a byte range of a file as a sequence of text chunks of at most a given size, each along with the text around it.
+ * <p>
+ * Every chunk comes with up to {@code overlap} bytes of the text before and after it, which should be at least the longest possible match
+ * (see {@link org.danf.dlpengine.scanner.SensitiveDataScanner#getMaxMatchLength()}). A match starting in a chunk is then matched in full even if it
+ * crosses the chunk's end, and a match starting before the chunk consumes its text like in a scan of the whole file. Counting only the matches that
+ * start within each chunk (see {@link SensitiveDataScanService#scanInto}) counts every match of the file exactly once - so the results of adjacent
+ * ranges (streaming, sampling, sharding) add up to the results of scanning the whole file in one go, however long its lines are.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Chunks are cut right after their last line break where possible, no pattern spans lines so the matches around such cuts are exactly those of a
+ * scan of the whole file. A line longer than a chunk is cut at the chunk size instead, there a digit run longer than the overlap (e.g. in a
+ * number way longer than an SSN) may be matched with different alignment than in a single scan.
+ * Range and chunk boundaries are moved forward to the next UTF-8 character start, so adjacent ranges agree on which range owns each character.
+ */
+class FileChunkReader implements Closeable {
+
+    private static final byte NEW_LINE = '\n';
+
+    /**
+     * A chunk's text along with the text around it - only the matches starting within [start, end) of it belong to the chunk.
+     */
+    @Value
+    static class Chunk {
+        String text;
+        int start;
+        int end;
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long end;
+    private final int chunkSize;
+    private final int overlap;
+    private final ByteBuffer buffer;
+
+    private long position;
+    private boolean finished;
+    private long bytesRead;
+
+    /**
+     * @param path      file to read
+     * @param start     first byte of the range (inclusive)
+     * @param end       last byte of the range (exclusive)
+     * @param chunkSize max size in bytes of a single chunk (not counting the overlap)
+     * @param overlap   max number of bytes before and after each chunk to read along with it
+     */
+    FileChunkReader(Path path, long start, long end, int chunkSize, int overlap) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive, got " + chunkSize);
+        }
+        if (overlap < 0) {
+            throw new IllegalArgumentException("Overlap must not be negative, got " + overlap);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.end = Math.min(end, fileSize);
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+        // A few more bytes to move the chunk's start and end to character starts
+        this.buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, chunkSize + 2L * overlap + 8));
+        this.position = Math.max(0, start);
+        this.finished = position >= this.end;
+    }
+
+    /**
+     * @return the next chunk, or null once the range is exhausted.
+     */
+    @Nullable
+    Chunk nextChunk() throws IOException {
+        if (finished) {
+            return null;
+        }
+        long readStart = Math.max(0, position - overlap);
+        int length = fill(readStart);
+        var bytes = buffer.array();
+        int chunkStart = charStart(bytes, (int) (position - readStart), length);
+        int chunkEnd = Math.min(length, chunkStart + chunkSize);
+        long rangeEnd = end - readStart;
+        int cut;
+        if (rangeEnd <= chunkEnd) {
+            cut = charStart(bytes, (int) rangeEnd, length);
+            finished = true;
+        } else {
+            cut = cutPoint(bytes, chunkStart, chunkEnd, length);
+        }
+        if (cut <= chunkStart) {
+            // Nothing left but the tail of a character owned by the previous range
+            finished = true;
+            return null;
+        }
+        int textEnd = Math.min(length, cut + overlap);
+
+        position = readStart + cut;
+        bytesRead += cut - chunkStart;
+        // All three parts start on a character, so decoded apart they are as long as within the whole text
+        var text = new String(bytes, 0, textEnd, StandardCharsets.UTF_8);
+        int before = new String(bytes, 0, chunkStart, StandardCharsets.UTF_8).length();
+        int after = new String(bytes, cut, textEnd - cut, StandardCharsets.UTF_8).length();
+        return new Chunk(text, before, text.length() - after);
+    }
+
+    /**
+     * @return number of bytes of the range read so far, not counting the overlap around its chunks.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    long getFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Prefers cutting right after the last line break, falls back to the last UTF-8 character start for lines longer than a chunk. The byte at
+     * {@code to} must be within the buffer.
+     */
+    private static int cutPoint(byte[] bytes, int from, int to, int length) {
+        for (int i = to - 1; i > from; i--) {
+            if (bytes[i] == NEW_LINE) {
+                return i + 1;
+            }
+        }
+        int cut = to;
+        while (cut > from + 1 && isContinuation(bytes[cut])) {
+            cut--;
+        }
+        // A chunk smaller than the character it starts with
+        return isContinuation(bytes[cut]) ? charStart(bytes, to, length) : cut;
+    }
+
+    /**
+     * @return the offset of the first UTF-8 character starting at or after the given offset.
+     */
+    private static int charStart(byte[] bytes, int offset, int length) {
+        while (offset < length && isContinuation(bytes[offset])) {
+            offset++;
+        }
+        return Math.min(offset, length);
+    }
+
+    // UTF-8 continuation bytes look like 10xxxxxx
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * Fills {@link #buffer} with bytes starting at the given file offset.
+     *
+     * @return number of bytes read into the buffer.
+     */
+    private int fill(long offset) throws IOException {
+        buffer.clear();
+        long readPosition = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                break;
+            }
+            readPosition += read;
+        }
+        return buffer.position();
+    }
+}
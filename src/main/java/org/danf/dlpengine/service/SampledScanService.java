@@ -0,0 +1,244 @@
+package org.danf.dlpengine.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.ScanResult;
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Estimates the sensitive data in a file by scanning only a sample of it, for bulk sweeps of very large files where a full scan is too expensive.
+ * <p>
+ * The file is divided into fixed size slots, and up to {@code byte-budget} bytes worth of slots are picked either at random or one per equally sized
+ * stratum (which guarantees the sample is spread over the whole file). Each slot counts the matches starting within its bytes (see
+ * {@link FileChunkReader}), so the slots partition the file's matches and summing all of them would give the exact full scan result - making the
+ * per-slot mean an unbiased estimator. A slot reads no more than its own bytes and the longest possible match before and after them, however long
+ * the file's lines are.
+ * <p>
+ * The response holds the counts actually observed in the sample along with the estimated total count per type and its 95% confidence bounds.
+ * Should the sample find more matches than {@code full-scan-threshold} the file is clearly not low-risk, and it is scanned in full instead.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * The confidence interval uses the normal approximation with the variance of a simple random sample (with finite population correction). For a
+ * stratified sample with one slot per stratum this is conservative. Types never observed in the sample are not reported at all, just like in a
+ * regular scan.
+ */
+@Slf4j
+@Lazy(false) // Part of the scanning path, see application-prod.yml
+@Service
+public class SampledScanService {
+
+    public enum Strategy {
+        RANDOM,
+        STRATIFIED
+    }
+
+    // Accepts any observed match, the actual policy is applied to the estimates
+    private static final ScanPolicy SAMPLE_POLICY = ScanPolicy.defaultPolicy(List.of());
+
+    // two-sided 95% confidence
+    private static final double Z_95 = 1.96;
+
+    private final SensitiveDataScanService scanService;
+    private final Strategy strategy;
+    private final int slotSize;
+    private final long byteBudget;
+    private final long fullScanThreshold;
+    private final Random random;
+
+    @Autowired
+    public SampledScanService(SensitiveDataScanService scanService,
+                              @Value("${engine.sampling.strategy:stratified}") Strategy strategy,
+                              @Value("${engine.sampling.chunk-size:65536}") int slotSize,
+                              @Value("${engine.sampling.byte-budget:268435456}") long byteBudget,
+                              @Value("${engine.sampling.full-scan-threshold:100}") long fullScanThreshold) {
+        this(scanService, strategy, slotSize, byteBudget, fullScanThreshold, null);
+    }
+
+    SampledScanService(SensitiveDataScanService scanService, Strategy strategy, int slotSize, long byteBudget, long fullScanThreshold, Random random) {
+        if (byteBudget < 2L * slotSize) {
+            // The variance of the estimates can't be estimated from a single slot
+            throw new IllegalArgumentException("engine.sampling.byte-budget must be at least 2 slots of engine.sampling.chunk-size bytes, got "
+                    + byteBudget + " for slots of " + slotSize);
+        }
+        this.scanService = scanService;
+        this.strategy = strategy;
+        this.slotSize = slotSize;
+        this.byteBudget = byteBudget;
+        this.fullScanThreshold = fullScanThreshold;
+        this.random = random;
+    }
+
+    /**
+     * Same assumptions as {@link SensitiveDataScanService#scanFile(String)}.
+     */
+    public ScanResults scanFile(String filePath) {
+        return scanFile(filePath, scanService.getDefaultPolicy());
+    }
+
+    /**
+     * Samples the file with the scanners of the given policy. Its context rank thresholds are applied to the rank estimated for the whole file, as
+     * the rank observed in the sample is only a fraction of it. Early exit does not apply to sampling, but does to the full scan it might switch to.
+     */
+    public ScanResults scanFile(String filePath, ScanPolicy policy) {
+        var path = Path.of(filePath);
+        long fileSize;
+        try {
+            fileSize = Files.size(path);
+        } catch (IOException ioe) {
+            log.error("Failed to read file at path '{}' : '{}'", filePath, ioe);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read file at given path.");
+        }
+
+        long slotCount = (fileSize + slotSize - 1) / slotSize;
+        int sampleSize = (int) Math.min(byteBudget / slotSize, Integer.MAX_VALUE);
+        if (sampleSize >= slotCount) {
+            // Budget covers the whole file anyway
+            return fullScan(filePath, policy, fileSize);
+        }
+
+        // Slots must be counted in full for the estimates to hold
+        var samplePolicy = policy.forSampling();
+        int overlap = samplePolicy.maxMatchLength();
+        var slots = strategy == Strategy.RANDOM ? randomSlots(slotCount, sampleSize) : stratifiedSlots(slotCount, sampleSize);
+        var sampleTotals = new ScanResultAccumulator();
+        var perSlotCounts = new EnumMap<SensitiveDataType, long[]>(SensitiveDataType.class);
+        long bytesScanned = 0;
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                long start = slots[i] * slotSize;
+                var slotResults = new ScanResultAccumulator();
+                try (var reader = new FileChunkReader(path, start, start + slotSize, slotSize, overlap)) {
+                    FileChunkReader.Chunk chunk;
+                    while ((chunk = reader.nextChunk()) != null) {
+                        scanService.scanInto(chunk, samplePolicy, slotResults);
+                    }
+                    bytesScanned += reader.getBytesRead();
+                }
+                for (var type : SensitiveDataType.values()) {
+                    long count = slotResults.getCount(type);
+                    if (count > 0) {
+                        perSlotCounts.computeIfAbsent(type, t -> new long[sampleSize])[i] = count;
+                    }
+                }
+                sampleTotals.merge(slotResults);
+                if (sampleTotals.getTotalCount() > fullScanThreshold) {
+                    log.info("Sample of file at path '{}' exceeded {} matches, switching to a full scan", filePath, fullScanThreshold);
+                    return fullScan(filePath, policy, fileSize);
+                }
+            }
+        } catch (IOException ioe) {
+            log.error("Failed to read file at path '{}' : '{}'", filePath, ioe);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read file at given path.");
+        }
+
+        var results = new ArrayList<ScanResult>();
+        var sampleResults = sampleTotals.toScanResults(SAMPLE_POLICY);
+        double scale = (double) slotCount / sampleSize;
+        for (var observed : sampleResults.getResults()) {
+            var estimatedRank = ScanResult.builder()
+                    .type(observed.getType())
+                    .count(observed.getCount())
+                    .contextRank(ScanResultAccumulator.saturatedCast(Math.round(observed.getContextRank() * scale)))
+                    .build();
+            if (policy.accepts(estimatedRank)) {
+                results.add(withEstimate(observed, perSlotCounts.get(observed.getType()), slotCount));
+            }
+        }
+        return ScanResults.builder()
+                .results(results)
+                .errors(sampleResults.getErrors())
+                .sampled(true)
+                .bytesScanned(bytesScanned)
+                .totalBytes(fileSize)
+                .build();
+    }
+
+    private ScanResults fullScan(String filePath, ScanPolicy policy, long fileSize) {
+        var results = scanService.scanFile(filePath, policy);
+        return ScanResults.builder()
+                .results(results.getResults())
+                .errors(results.getErrors())
+                .sampled(false)
+                .bytesScanned(fileSize)
+                .totalBytes(fileSize)
+                .build();
+    }
+
+    /**
+     * Estimates the total count as (slot count * mean count per sampled slot), bounded by the 95% confidence interval of the mean.
+     */
+    static ScanResult withEstimate(ScanResult observed, long[] slotCounts, long slotCount) {
+        int n = slotCounts.length;
+        double mean = Arrays.stream(slotCounts).sum() / (double) n;
+        double variance = 0;
+        for (long count : slotCounts) {
+            variance += (count - mean) * (count - mean);
+        }
+        variance /= (n - 1);
+        double finitePopulationCorrection = 1 - (double) n / slotCount;
+        double standardError = slotCount * Math.sqrt(variance / n * finitePopulationCorrection);
+        double estimate = slotCount * mean;
+
+        return ScanResult.builder()
+                .type(observed.getType())
+                .count(observed.getCount())
+                .contextRank(observed.getContextRank())
+                .estimatedCount(Math.round(estimate))
+                .estimatedCountLower(Math.max(observed.getCount(), (long) Math.floor(estimate - Z_95 * standardError)))
+                .estimatedCountUpper((long) Math.ceil(estimate + Z_95 * standardError))
+                .build();
+    }
+
+    /**
+     * Picks distinct slots uniformly at random (Floyd's algorithm), sorted so the file is read front to back.
+     */
+    long[] randomSlots(long slotCount, int sampleSize) {
+        var rnd = random();
+        var picked = new HashSet<Long>(sampleSize * 2);
+        for (long j = slotCount - sampleSize; j < slotCount; j++) {
+            long candidate = nextLong(rnd, j + 1);
+            picked.add(picked.contains(candidate) ? j : candidate);
+        }
+        return picked.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Divides the slots into sampleSize equal strata and picks one slot at random from each.
+     */
+    long[] stratifiedSlots(long slotCount, int sampleSize) {
+        var rnd = random();
+        double stratumWidth = (double) slotCount / sampleSize;
+        var slots = new long[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            long stratumStart = (long) (i * stratumWidth);
+            long stratumEnd = Math.min(slotCount, (long) ((i + 1) * stratumWidth));
+            slots[i] = stratumStart + nextLong(rnd, Math.max(1, stratumEnd - stratumStart));
+        }
+        return slots;
+    }
+
+    private Random random() {
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+
+    private static long nextLong(Random rnd, long bound) {
+        return (long) (rnd.nextDouble() * bound);
+    }
+}
@@ -0,0 +1,133 @@
+package org.danf.dlpengine.service;
+
+import lombok.Value;
+import org.danf.dlpengine.model.ScanResult;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.danf.dlpengine.scanner.MatcherPool;
+import org.danf.dlpengine.scanner.SensitiveDataScanner;
+import org.danf.dlpengine.sketch.ValueStatistics;
+import org.springframework.lang.Nullable;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled policy profile: which scanners to run on an input, the min context rank a result must have to be reported, whether to stop at the
+ * first reported match and whether to report distinct / most frequent value statistics. Policies are compiled once (see {@link ScanPolicyRegistry}) and reused by every request that selects them.
+ * <p>
+ * Each policy also holds a combined "candidate" pattern - the alternation of all its scanners' sensitive data patterns. A single pass of it tells
+ * whether any of the scanners could possibly match, so clean inputs (the vast majority) are dismissed without running every scanner's own pattern
+ * and context keywords. It is only a pre-filter: the actual counting is still done per scanner, since in a single alternation one data type's
+ * match would consume the text of another's (e.g. digit runs within an IBAN are also SSN matches).
+ */
+@Value
+public class ScanPolicy {
+
+    public static final String DEFAULT_POLICY_NAME = "default";
+
+    String name;
+    List<SensitiveDataScanner> scanners;
+    Map<SensitiveDataType, Integer> contextRankThresholds;
+    boolean earlyExit;
+    @Nullable
+    Pattern candidatePattern;
+    // Only set if the policy reports value statistics
+    @Nullable
+    ValueStatistics valueStatistics;
+
+    public static ScanPolicy compile(String name, List<SensitiveDataScanner> scanners, Map<SensitiveDataType, Integer> contextRankThresholds,
+                                     boolean earlyExit) {
+        return compile(name, scanners, contextRankThresholds, earlyExit, null);
+    }
+
+    /**
+     * @param valueStatistics to report distinct / most frequent value statistics with, null not to.
+     */
+    public static ScanPolicy compile(String name, List<SensitiveDataScanner> scanners, Map<SensitiveDataType, Integer> contextRankThresholds,
+                                     boolean earlyExit, @Nullable ValueStatistics valueStatistics) {
+        var thresholds = new EnumMap<SensitiveDataType, Integer>(SensitiveDataType.class);
+        thresholds.putAll(contextRankThresholds);
+        return new ScanPolicy(name, List.copyOf(scanners), thresholds, earlyExit, combinePatterns(scanners), valueStatistics);
+    }
+
+    /**
+     * @return a policy running all given scanners with no thresholds, which is how inputs are scanned unless requested otherwise.
+     */
+    public static ScanPolicy defaultPolicy(List<SensitiveDataScanner> scanners) {
+        return compile(DEFAULT_POLICY_NAME, scanners, Map.of(), false);
+    }
+
+    /**
+     * @return this policy without early exit, for scans that must count every match of the policy's scanners (see {@link SampledScanService}), and
+     * without value statistics, which aren't reported for samples.
+     */
+    public ScanPolicy forSampling() {
+        return earlyExit || valueStatistics != null ? new ScanPolicy(name, scanners, contextRankThresholds, false, candidatePattern, null) : this;
+    }
+
+    /**
+     * @return length of the longest text a match of any of this policy's scanners can span, see {@link SensitiveDataScanner#getMaxMatchLength()}.
+     */
+    public int maxMatchLength() {
+        int maxMatchLength = 0;
+        for (var scanner : scanners) {
+            maxMatchLength = Math.max(maxMatchLength, scanner.getMaxMatchLength());
+        }
+        return maxMatchLength;
+    }
+
+    /**
+     * @return true if the input may contain matches of any of this policy's scanners, false if it definitely doesn't.
+     */
+    public boolean mayMatch(String input) {
+        if (candidatePattern == null) {
+            return true;
+        }
+        var matcher = MatcherPool.acquire(candidatePattern, input);
+        try {
+            return matcher.find();
+        } finally {
+            MatcherPool.release(matcher);
+        }
+    }
+
+    /**
+     * @return the value statistics to track while scanning, null if none (which is always the case with early exit, values aren't all matched).
+     */
+    @Nullable
+    public ValueStatistics trackedValueStatistics() {
+        return earlyExit ? null : valueStatistics;
+    }
+
+    /**
+     * @return true if the result should be reported: it has matches and its context rank meets the threshold of its type (if any).
+     */
+    public boolean accepts(ScanResult result) {
+        return result.getCount() > 0 && result.getContextRank() >= contextRankThresholds.getOrDefault(result.getType(), 0);
+    }
+
+    /**
+     * @return the alternation of all patterns, or null if any of them can't be safely combined.
+     */
+    @Nullable
+    private static Pattern combinePatterns(List<SensitiveDataScanner> scanners) {
+        if (scanners.isEmpty()) {
+            return null;
+        }
+        var combined = new StringBuilder();
+        for (var scanner : scanners) {
+            var pattern = scanner.getSensitiveDataPattern();
+            // Case insensitivity is the only flag that can be embedded in a group, anything else won't keep its meaning when combined
+            if (pattern == null || (pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+                return null;
+            }
+            if (combined.length() > 0) {
+                combined.append('|');
+            }
+            combined.append((pattern.flags() & Pattern.CASE_INSENSITIVE) != 0 ? "(?i:" : "(?:").append(pattern.pattern()).append(')');
+        }
+        return Pattern.compile(combined.toString());
+    }
+}
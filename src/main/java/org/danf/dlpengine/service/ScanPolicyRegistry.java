@@ -0,0 +1,80 @@
+package org.danf.dlpengine.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.config.PolicyProperties;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.danf.dlpengine.scanner.SensitiveDataScanner;
+import org.danf.dlpengine.sketch.ValueStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the configured policy profiles (see {@link PolicyProperties}) once at startup and looks them up by name per request.
+ * Never lazily initialized (see application-prod.yml), compiling policies is startup work that shouldn't be left for the first request.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class ScanPolicyRegistry {
+
+    private final ScanPolicy defaultPolicy;
+    private final Map<String, ScanPolicy> policies = new HashMap<>();
+
+    public ScanPolicyRegistry(PolicyProperties properties, List<SensitiveDataScanner> scanners) {
+        this(properties, scanners, null);
+    }
+
+    /**
+     * @param valueStatistics for policies with distinct-values enabled, may only be null if there are none.
+     */
+    @Autowired
+    public ScanPolicyRegistry(PolicyProperties properties, List<SensitiveDataScanner> scanners, @Nullable ValueStatistics valueStatistics) {
+        this.defaultPolicy = ScanPolicy.defaultPolicy(scanners);
+        var scannersByType = new EnumMap<SensitiveDataType, SensitiveDataScanner>(SensitiveDataType.class);
+        scanners.forEach(scanner -> scannersByType.put(scanner.getDataType(), scanner));
+
+        properties.getPolicies().forEach((name, profile) -> {
+            var selected = new ArrayList<SensitiveDataScanner>();
+            for (var type : profile.getDetectors()) {
+                var scanner = scannersByType.get(type);
+                if (scanner == null) {
+                    // Fail fast, a policy silently not scanning for something is worse than not starting
+                    throw new IllegalStateException("Policy '" + name + "' lists detector " + type.name() + " which has no scanner available");
+                }
+                selected.add(scanner);
+            }
+            if (profile.isDistinctValues() && valueStatistics == null) {
+                throw new IllegalStateException("Policy '" + name + "' has distinct-values enabled but value statistics aren't available");
+            }
+            policies.put(name, ScanPolicy.compile(name, selected, profile.getContextRankThresholds(), profile.isEarlyExit(),
+                    profile.isDistinctValues() ? valueStatistics : null));
+            log.info("Compiled scan policy '{}' with detectors {}", name, profile.getDetectors());
+        });
+    }
+
+    /**
+     * @param name policy name, may be empty to get the default policy (all scanners, no thresholds).
+     * @throws ResponseStatusException (bad request) if there is no such policy.
+     */
+    public ScanPolicy getPolicy(@Nullable String name) {
+        if (!StringUtils.hasText(name)) {
+            return defaultPolicy;
+        }
+        var policy = policies.get(name);
+        if (policy == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown policy '" + name + "'.");
+        }
+        return policy;
+    }
+}
@@ -0,0 +1,17 @@
+package org.danf.dlpengine.service;
+
+import org.danf.dlpengine.model.ScanResults;
+
+/**
+ * Notified as a file scan progresses, after each chunk of the file was scanned.
+ */
+@FunctionalInterface
+public interface ScanProgressListener {
+
+    /**
+     * @param bytesScanned   bytes of the file scanned so far.
+     * @param totalBytes     size of the file.
+     * @param partialResults results of the part of the file scanned so far.
+     */
+    void onProgress(long bytesScanned, long totalBytes, ScanResults partialResults);
+}
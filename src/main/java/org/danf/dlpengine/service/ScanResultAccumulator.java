@@ -0,0 +1,166 @@
+package org.danf.dlpengine.service;
+
+import org.danf.dlpengine.model.ScanResult;
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.danf.dlpengine.sketch.ValueSketch;
+import org.danf.dlpengine.sketch.ValueStatistics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the results of scanning an input in several pieces (chunks of a file, byte ranges, samples) into a single {@link ScanResults}.
+ * <p>
+ * Both the match count and the context rank are counts of pattern matches, and since each match is counted by the one piece it starts in (see
+ * {@link FileChunkReader}), summing them gives the same result as scanning the whole input at once. Note that this only holds when the per-piece results are added unfiltered, a piece
+ * might have context keywords but no matches.
+ * Value statistics (see {@link ValueStatistics}) are kept as one sketch per type, which values of all pieces are added to, and merged with the sketches
+ * of pieces scanned elsewhere.
+ * <p>
+ * Not thread safe.
+ */
+public class ScanResultAccumulator {
+
+    private final Map<SensitiveDataType, long[]> totals = new EnumMap<>(SensitiveDataType.class);
+    private final Map<String, String> errors = new HashMap<>();
+    private final Map<SensitiveDataType, ValueSketch> valueSketches = new EnumMap<>(SensitiveDataType.class);
+
+    /**
+     * @throws IllegalArgumentException if the result has a value sketch which doesn't merge with this one's (different salt or settings).
+     */
+    public void add(ScanResult result) {
+        var counts = totals.computeIfAbsent(result.getType(), type -> new long[2]);
+        counts[0] += result.getCount();
+        counts[1] += result.getContextRank();
+        if (result.getValueSketch() != null) {
+            mergeValueSketch(result.getType(), ValueSketch.decode(result.getValueSketch()));
+        }
+    }
+
+    /**
+     * @return the sketch to add the values of the given type to, created with the given statistics' settings if there's none yet.
+     */
+    public ValueSketch valueSketch(SensitiveDataType type, ValueStatistics valueStatistics) {
+        return valueSketches.computeIfAbsent(type, t -> valueStatistics.newSketch());
+    }
+
+    public void addError(String scannerName, String error) {
+        errors.put(scannerName, error);
+    }
+
+    /**
+     * Adds all results and errors, which must be unfiltered (see {@link #toUnfilteredScanResults()}).
+     */
+    public void addAll(ScanResults results) {
+        if (results.getResults() != null) {
+            results.getResults().forEach(this::add);
+        }
+        if (results.getErrors() != null) {
+            errors.putAll(results.getErrors());
+        }
+    }
+
+    public void merge(ScanResultAccumulator other) {
+        other.totals.forEach((type, counts) -> {
+            var mine = totals.computeIfAbsent(type, t -> new long[2]);
+            mine[0] += counts[0];
+            mine[1] += counts[1];
+        });
+        errors.putAll(other.errors);
+        other.valueSketches.forEach((type, sketch) -> mergeValueSketch(type, sketch.copy()));
+    }
+
+    public long getCount(SensitiveDataType type) {
+        var counts = totals.get(type);
+        return counts == null ? 0 : counts[0];
+    }
+
+    /**
+     * @return sum of match counts of all types.
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (var counts : totals.values()) {
+            total += counts[0];
+        }
+        return total;
+    }
+
+    /**
+     * @return true if any of the accumulated results would be reported under the given policy.
+     */
+    public boolean hasAccepted(ScanPolicy policy) {
+        return !toResultList(policy).isEmpty();
+    }
+
+    /**
+     * @return the accumulated results the policy accepts, which omits types with no matches (same as a regular scan).
+     */
+    public ScanResults toScanResults(ScanPolicy policy) {
+        return ScanResults.builder()
+                .results(toResultList(policy))
+                .errors(new HashMap<>(errors))
+                .build();
+    }
+
+    /**
+     * @return all accumulated results, for merging into another accumulator (e.g. on another node).
+     */
+    public ScanResults toUnfilteredScanResults() {
+        var results = new ArrayList<ScanResult>(totals.size());
+        totals.forEach((type, counts) -> {
+            var sketch = valueSketches.get(type);
+            results.add(ScanResult.builder()
+                    .type(type)
+                    .count(saturatedCast(counts[0]))
+                    .contextRank(saturatedCast(counts[1]))
+                    .valueSketch(sketch == null ? null : sketch.encode())
+                    .build());
+        });
+        return ScanResults.builder()
+                .results(results)
+                .errors(new HashMap<>(errors))
+                .build();
+    }
+
+    List<ScanResult> toResultList(ScanPolicy policy) {
+        var results = new ArrayList<ScanResult>(totals.size());
+        totals.forEach((type, counts) -> {
+            var result = ScanResult.builder()
+                    .type(type)
+                    .count(saturatedCast(counts[0]))
+                    .contextRank(saturatedCast(counts[1]))
+                    .build();
+            if (policy.accepts(result)) {
+                var sketch = valueSketches.get(type);
+                var valueStatistics = policy.trackedValueStatistics();
+                if (sketch != null && valueStatistics != null) {
+                    result = result.toBuilder()
+                            .distinctCount(sketch.getDistinctCount())
+                            .topValues(sketch.getTopValues(valueStatistics.getTopValues()))
+                            .build();
+                }
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    private void mergeValueSketch(SensitiveDataType type, ValueSketch sketch) {
+        var mine = valueSketches.putIfAbsent(type, sketch);
+        if (mine != null) {
+            mine.merge(sketch);
+        }
+    }
+
+    /**
+     * {@link ScanResult} counts are ints, a very large file could in theory overflow them.
+     */
+    static int saturatedCast(long value) {
+        return (int) Math.min(Integer.MAX_VALUE, value);
+    }
+}
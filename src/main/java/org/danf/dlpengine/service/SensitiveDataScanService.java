@@ -5,70 +5,201 @@ import org.danf.dlpengine.model.ScanResult;
 import org.danf.dlpengine.model.ScanResults;
 import org.danf.dlpengine.scanner.SensitiveDataScanner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Provides methods to invoke scanning an in input and returns an aggregation of results from all scanner implementations.
  */
 @Slf4j
+@Lazy(false) // Part of the scanning path, see application-prod.yml
 @Service
 public class SensitiveDataScanService {
 
-    private final List<SensitiveDataScanner> scanners;
+    static final int DEFAULT_FILE_CHUNK_SIZE = 1024 * 1024;
+
+    private final ScanPolicy defaultPolicy;
+
+    // Files are scanned in chunks of (about) this many bytes so that memory use does not depend on the file's size
+    @Value("${engine.file.chunk-size:" + DEFAULT_FILE_CHUNK_SIZE + "}")
+    private int fileChunkSize = DEFAULT_FILE_CHUNK_SIZE;
 
     @Autowired
     public SensitiveDataScanService(List<SensitiveDataScanner> scanners) {
-        this.scanners = scanners;
+        this.defaultPolicy = ScanPolicy.defaultPolicy(scanners);
     }
 
     /**
      * Assumption: REST controller already validated file at path exists.
      * That being said, it might get deleted between validation and open for read so best to double-check.
+     * The file is read and scanned in chunks (see {@link FileChunkReader}) so it may be larger than available memory.
      */
     public ScanResults scanFile(String filePath) {
-        String input;
-        try {
-            // Should add sanity test that file is not bigger then a few K
-            input = Files.readString(Path.of(filePath));
+        return scanFile(filePath, defaultPolicy);
+    }
+
+    /**
+     * Same as {@link #scanFile(String)}, running only the scanners of the given policy. With an early-exit policy the rest of the file is not read once
+     * a reportable match was found.
+     */
+    public ScanResults scanFile(String filePath, ScanPolicy policy) {
+        return scanFile(filePath, policy, null);
+    }
+
+    /**
+     * Same as {@link #scanFile(String, ScanPolicy)}, reporting progress to the given listener (if any) after each chunk.
+     */
+    public ScanResults scanFile(String filePath, ScanPolicy policy, @Nullable ScanProgressListener progressListener) {
+        var accumulator = new ScanResultAccumulator();
+        try (var reader = new FileChunkReader(Path.of(filePath), 0, Long.MAX_VALUE, fileChunkSize, policy.maxMatchLength())) {
+            FileChunkReader.Chunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                scanInto(chunk, policy, accumulator);
+                if (progressListener != null) {
+                    progressListener.onProgress(reader.getBytesRead(), reader.getFileSize(), accumulator.toScanResults(policy));
+                }
+                if (policy.isEarlyExit() && accumulator.hasAccepted(policy)) {
+                    break;
+                }
+            }
+        } catch (IOException ioe) {
+            log.error("Failed to read file at path '{}' : '{}'", filePath, ioe);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read file at given path.");
+        }
+        return accumulator.toScanResults(policy);
+    }
+
+    /**
+     * Scans the part of a file owned by the byte range [rangeStart, rangeEnd) - the matches starting within it (see {@link FileChunkReader}), so that
+     * adjacent ranges split the file's matches between them exactly.
+     *
+     * @return unfiltered results (including types with context keywords but no matches), to be summed up with the results of the file's other
+     * ranges by a {@link ScanResultAccumulator} - which applies the policy once all ranges are in (see {@link ShardedScanService}).
+     */
+    public ScanResults scanRange(String filePath, ScanPolicy policy, long rangeStart, long rangeEnd) {
+        var accumulator = new ScanResultAccumulator();
+        try (var reader = new FileChunkReader(Path.of(filePath), rangeStart, rangeEnd, fileChunkSize, policy.maxMatchLength())) {
+            FileChunkReader.Chunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                scanInto(chunk, policy, accumulator);
+                if (policy.isEarlyExit() && accumulator.hasAccepted(policy)) {
+                    break;
+                }
+            }
         } catch (IOException ioe) {
             log.error("Failed to read file at path '{}' : '{}'", filePath, ioe);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read file at given path.");
         }
-        return scan(input);
+        return accumulator.toUnfilteredScanResults();
     }
 
     public ScanResults scan(String input) {
-        final var errors = new HashMap<String, String>();
-        var results = scanners.stream()
-                .map(scanner -> scanInput(scanner, input, errors))
-                .filter(Objects::nonNull)
-                .filter(scanResult -> scanResult.getCount() > 0) // Don't return empty results
-                .collect(Collectors.toList());
+        return scan(input, defaultPolicy);
+    }
 
+    /**
+     * Scans the input with the scanners of the given policy, only reporting results the policy accepts.
+     * <p>
+     * IMPLEMENTATION NOTES:
+     * This is the per request path, so it's written to allocate as little as possible: a plain loop rather than a stream pipeline, and the shared
+     * empty list / map unless there are results / errors (see also {@link org.danf.dlpengine.scanner.MatcherPool}).
+     */
+    public ScanResults scan(String input, ScanPolicy policy) {
+        if (!policy.mayMatch(input)) {
+            // None of the policy's scanners could match anything in this input
+            return ScanResults.builder()
+                    .results(List.of())
+                    .errors(Map.of())
+                    .build();
+        }
+        if (policy.trackedValueStatistics() != null) {
+            var accumulator = new ScanResultAccumulator();
+            scanInto(input, policy, accumulator);
+            return accumulator.toScanResults(policy);
+        }
+        var scanners = policy.getScanners();
+        List<ScanResult> results = null;
+        Map<String, String> errors = null;
+        for (int i = 0; i < scanners.size(); i++) {
+            var scanner = scanners.get(i);
+            ScanResult scanResult;
+            try {
+                scanResult = policy.isEarlyExit() ? scanner.scanForFirstMatch(input) : scanner.scan(input);
+            } catch (Exception e) {
+                log.error("Caught error from scanner '{}' while attempting to scan input.", scanner.scannerName(), e);
+                if (errors == null) {
+                    errors = new HashMap<>();
+                }
+                errors.put(scanner.scannerName(), e.getMessage());
+                continue;
+            }
+            // Don't return empty results
+            if (scanResult != null && policy.accepts(scanResult)) {
+                if (results == null) {
+                    results = new ArrayList<>(policy.isEarlyExit() ? 1 : scanners.size());
+                }
+                results.add(scanResult);
+                if (policy.isEarlyExit()) {
+                    break;
+                }
+            }
+        }
         return ScanResults.builder()
-                .results(results)
-                .errors(errors)
+                .results(results == null ? List.of() : results)
+                .errors(errors == null ? Map.of() : errors)
                 .build();
     }
 
-    private ScanResult scanInput(SensitiveDataScanner scanner, String input, HashMap<String, String> errors) {
-        ScanResult scanResult = null;
-        try {
-            scanResult = scanner.scan(input);
-        } catch (Exception e) {
-            log.error("Caught error from scanner '{}' while attempting to scan input.", scanner.scannerName(), e);
-            errors.put(scanner.scannerName(), e.getMessage());
+    public ScanPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Scans a piece of a larger input, adding all results to the given accumulator - including those with no matches, as their context rank
+     * still counts towards the whole input's rank. Matched values are added to the accumulator's value sketches if the policy tracks them.
+     */
+    void scanInto(String input, ScanPolicy policy, ScanResultAccumulator accumulator) {
+        scanInto(input, 0, input.length(), policy, accumulator);
+    }
+
+    /**
+     * Same as {@link #scanInto(String, ScanPolicy, ScanResultAccumulator)} for a chunk of a file, counting only the matches starting within it.
+     */
+    void scanInto(FileChunkReader.Chunk chunk, ScanPolicy policy, ScanResultAccumulator accumulator) {
+        scanInto(chunk.getText(), chunk.getStart(), chunk.getEnd(), policy, accumulator);
+    }
+
+    private void scanInto(String input, int from, int to, ScanPolicy policy, ScanResultAccumulator accumulator) {
+        var valueStatistics = policy.trackedValueStatistics();
+        for (var scanner : policy.getScanners()) {
+            try {
+                ScanResult scanResult;
+                if (policy.isEarlyExit()) {
+                    scanResult = scanner.scanForFirstMatch(input, from, to);
+                } else if (valueStatistics != null) {
+                    var sketch = accumulator.valueSketch(scanner.getDataType(), valueStatistics);
+                    scanResult = scanner.scan(input, from, to, value -> valueStatistics.add(sketch, scanner.getValueType(), value));
+                } else {
+                    scanResult = scanner.scan(input, from, to, null);
+                }
+                if (scanResult != null) {
+                    accumulator.add(scanResult);
+                }
+            } catch (Exception e) {
+                log.error("Caught error from scanner '{}' while attempting to scan input.", scanner.scannerName(), e);
+                accumulator.addError(scanner.scannerName(), e.getMessage());
+            }
         }
-        return scanResult;
     }
 }
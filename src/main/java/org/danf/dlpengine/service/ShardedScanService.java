@@ -0,0 +1,170 @@
+package org.danf.dlpengine.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.model.ScanRequest;
+import org.danf.dlpengine.model.ScanResults;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Scans a huge file by splitting it into byte ranges scanned in parallel by peer engine nodes (engine.cluster.peers), for files too big for a single
+ * node to scan in reasonable time. The file must be available to every peer at the same path (e.g. on shared storage).
+ * <p>
+ * - Each range is sent to a peer's range scan endpoint (POST /api/v1/scan/range), peers are assigned ranges round robin.
+ * - A range that fails on a peer (unreachable, timed out, error response) is retried on the next peers, up to engine.cluster.max-attempts peers.
+ * - Ranges return unfiltered results, which are summed up and then filtered by the policy (see {@link ScanResultAccumulator}).
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Each range is scanned along with the longest possible match before and after it, and counts only the matches starting within it (see
+ * {@link FileChunkReader}). So a match across a boundary is counted exactly once, by the range it starts in, and there's nothing to de-duplicate.
+ * A range never reads more than its own bytes and that overlap, so the work is split evenly however long the file's lines are.
+ * With no peers configured files are scanned locally.
+ */
+@Slf4j
+@Lazy(false) // Part of the scanning path, see application-prod.yml
+@Service
+public class ShardedScanService {
+
+    static final String RANGE_SCAN_PATH = "/api/v1/scan/range";
+
+    private final SensitiveDataScanService scanService;
+    private final RestTemplate restTemplate;
+    private final List<String> peers;
+    private final long rangeSize;
+    private final int maxAttempts;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardedScanService(SensitiveDataScanService scanService,
+                              RestTemplateBuilder restTemplateBuilder,
+                              @Value("${engine.cluster.peers}") String[] peers,
+                              @Value("${engine.cluster.range-size}") long rangeSize,
+                              @Value("${engine.cluster.max-attempts}") int maxAttempts,
+                              @Value("${engine.cluster.ranges-per-peer}") int rangesPerPeer,
+                              @Value("${engine.cluster.read-timeout}") Duration readTimeout) {
+        this.scanService = scanService;
+        this.restTemplate = restTemplateBuilder.setReadTimeout(readTimeout).build();
+        this.peers = Arrays.stream(peers)
+                .filter(StringUtils::hasText)
+                .map(peer -> peer.trim().replaceAll("/+$", ""))
+                .collect(Collectors.toList());
+        this.rangeSize = rangeSize;
+        this.maxAttempts = maxAttempts;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, this.peers.size() * rangesPerPeer));
+    }
+
+    /**
+     * Assumption: REST controller already validated file at path exists.
+     */
+    public ScanResults scanFile(String filePath, ScanPolicy policy) {
+        if (peers.isEmpty()) {
+            log.warn("No peers configured, scanning file locally");
+            return scanService.scanFile(filePath, policy);
+        }
+        long fileSize;
+        try {
+            fileSize = Files.size(Path.of(filePath));
+        } catch (IOException ioe) {
+            log.error("Failed to read file at path '{}' : '{}'", filePath, ioe);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read file at given path.");
+        }
+
+        var completion = new ExecutorCompletionService<ScanResults>(executor);
+        var futures = new ArrayList<Future<ScanResults>>();
+        int rangeIndex = 0;
+        for (long start = 0; start < fileSize; start += rangeSize, rangeIndex++) {
+            var range = new Range(rangeIndex, start, Math.min(start + rangeSize, fileSize));
+            futures.add(completion.submit(() -> scanRange(filePath, policy, range)));
+        }
+        log.info("Scanning file in {} ranges across {} peers", futures.size(), peers.size());
+
+        var accumulator = new ScanResultAccumulator();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                accumulator.addAll(completion.take().get());
+                if (policy.isEarlyExit() && accumulator.hasAccepted(policy)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while scanning file.");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof ResponseStatusException ? (ResponseStatusException) e.getCause()
+                    : new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to scan file.", e.getCause());
+        } catch (IllegalArgumentException e) {
+            log.error("Failed to merge range results, are all peers configured with the same engine.distinct-values.salt?", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to merge the results of the file's ranges.");
+        } finally {
+            // Nothing left to wait for once done, failed or satisfied early
+            futures.forEach(future -> future.cancel(true));
+        }
+        return accumulator.toScanResults(policy);
+    }
+
+    private ScanResults scanRange(String filePath, ScanPolicy policy, Range range) {
+        var request = ScanRequest.builder()
+                .filePath(filePath)
+                .policy(ScanPolicy.DEFAULT_POLICY_NAME.equals(policy.getName()) ? null : policy.getName())
+                .rangeStart(range.start)
+                .rangeEnd(range.end)
+                .build();
+        RestClientException lastFailure = null;
+        for (int attempt = 0; attempt < Math.min(maxAttempts, peers.size()); attempt++) {
+            // Ranges start at different peers to spread the load, and move on to the next peers on failure
+            var peer = peers.get((range.index + attempt) % peers.size());
+            try {
+                var results = restTemplate.postForObject(peer + RANGE_SCAN_PATH, request, ScanResults.class);
+                if (results != null) {
+                    return results;
+                }
+            } catch (RestClientException e) {
+                log.warn("Failed to scan range {} [{}, {}) on peer '{}', attempt {}: {}", range.index, range.start, range.end, peer, attempt + 1,
+                        e.getMessage());
+                lastFailure = e;
+            }
+        }
+        log.error("Failed to scan range {} [{}, {}) on any peer", range.index, range.start, range.end, lastFailure);
+        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to scan part of the file on any peer.");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Range {
+        private final int index;
+        private final long start;
+        private final long end;
+
+        Range(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
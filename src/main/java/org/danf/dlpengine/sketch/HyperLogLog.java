@@ -0,0 +1,108 @@
+package org.danf.dlpengine.sketch;
+
+/**
+ * HyperLogLog distinct count estimator (Flajolet et al.) over 64 bit hashes, in 2^precision bytes of memory no matter how many values are added.
+ * The standard error of the estimate is about 1.04 / sqrt(2^precision), e.g. 0.8% at precision 14 (16KB).
+ * <p>
+ * Sketches of the same precision merge losslessly: the merge of the sketches of two inputs is the sketch of both inputs.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Hashes must already be uniformly distributed (e.g. cryptographic fingerprints), they aren't hashed again. The top precision bits pick the register,
+ * the register keeps the max rank (position of the first 1 bit) of the remaining bits.
+ * With 64 bit hashes there's no large range correction to make, but small cardinalities (below 2.5 * registers) are estimated by linear counting
+ * of the empty registers, which is far more accurate there.
+ * Not thread safe.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * @param registers as returned by {@link #getRegisters()}, taken as is (not copied).
+     */
+    static HyperLogLog of(byte[] registers) {
+        var precision = Integer.numberOfTrailingZeros(registers.length);
+        if (registers.length != 1 << precision) {
+            throw new IllegalArgumentException("Register count must be a power of 2");
+        }
+        var hyperLogLog = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, hyperLogLog.registers, 0, registers.length);
+        return hyperLogLog;
+    }
+
+    public void add(long hash) {
+        var index = (int) (hash >>> (Long.SIZE - precision));
+        // A sentinel bit past the remaining bits caps the rank at (64 - precision + 1)
+        var rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the other sketch has a different precision.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can't merge sketches of precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct hashes added.
+     */
+    public long estimate() {
+        var m = registers.length;
+        double sum = 0;
+        var emptyRegisters = 0;
+        for (var register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+        var estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && emptyRegisters > 0) {
+            estimate = m * Math.log((double) m / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    byte[] getRegisters() {
+        return registers;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
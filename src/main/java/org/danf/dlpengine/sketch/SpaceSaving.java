@@ -0,0 +1,136 @@
+package org.danf.dlpengine.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving (Metwally et al.) heavy hitters: approximate counts of the most frequent keys in a stream, keeping at most capacity counters no matter
+ * how many distinct keys there are.
+ * <p>
+ * Every key counted more than (total / capacity) times is guaranteed to be kept. A kept key's count is an overestimate by at most its error, i.e. its
+ * true count is within [count - error, count].
+ * <p>
+ * Summaries are mergeable (Agarwal et al., "Mergeable Summaries"), so the summaries of chunks or ranges of an input can be combined into one with the
+ * same guarantees.
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Finding the counter to evict is a linear scan of the counters rather than the original stream summary structure, capacities are small (tens to
+ * hundreds) and the scan is only done for new keys once the summary is full.
+ * Not thread safe.
+ */
+public class SpaceSaving {
+
+    private static final Comparator<Counter> BY_COUNT_DESCENDING = Comparator.comparingLong(Counter::getCount).reversed()
+            .thenComparingLong(Counter::getKey);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public static class Counter {
+        private final long key;
+        private long count;
+        private long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+
+    public void add(long key) {
+        var counter = counters.get(key);
+        if (counter != null) {
+            counter.count++;
+        } else if (counters.size() < capacity) {
+            counters.put(key, new Counter(key, 1, 0));
+        } else {
+            // The new key takes over the smallest counter, it may have occurred up to that many times before
+            var min = minCounter();
+            counters.remove(min.key);
+            counters.put(key, new Counter(key, min.count + 1, min.count));
+        }
+    }
+
+    /**
+     * Merges the other summary into this one, keeping this one's capacity.
+     */
+    public void merge(SpaceSaving other) {
+        // A key missing from a full summary may have occurred up to that summary's min count times
+        var myMissing = isFull() ? minCounter().count : 0;
+        var otherMissing = other.isFull() ? other.minCounter().count : 0;
+        var merged = new HashMap<Long, Counter>(counters.size() + other.counters.size());
+        counters.values().forEach(counter -> merged.put(counter.key, new Counter(counter.key, counter.count + otherMissing, counter.error + otherMissing)));
+        for (var counter : other.counters.values()) {
+            var mine = merged.get(counter.key);
+            if (mine == null) {
+                merged.put(counter.key, new Counter(counter.key, counter.count + myMissing, counter.error + myMissing));
+            } else {
+                mine.count += counter.count - otherMissing;
+                mine.error += counter.error - otherMissing;
+            }
+        }
+        counters.clear();
+        var sorted = new ArrayList<>(merged.values());
+        sorted.sort(BY_COUNT_DESCENDING);
+        sorted.subList(0, Math.min(capacity, sorted.size())).forEach(counter -> counters.put(counter.key, counter));
+    }
+
+    /**
+     * @return the k counters with the highest counts, highest first.
+     */
+    public List<Counter> top(int k) {
+        var sorted = new ArrayList<>(counters.values());
+        sorted.sort(BY_COUNT_DESCENDING);
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    int size() {
+        return counters.size();
+    }
+
+    void put(long key, long count, long error) {
+        counters.put(key, new Counter(key, count, error));
+    }
+
+    private boolean isFull() {
+        return counters.size() >= capacity;
+    }
+
+    private Counter minCounter() {
+        Counter min = null;
+        for (var counter : counters.values()) {
+            if (min == null || counter.count < min.count) {
+                min = counter;
+            }
+        }
+        return min;
+    }
+}
@@ -0,0 +1,119 @@
+package org.danf.dlpengine.sketch;
+
+import org.danf.dlpengine.edm.Fingerprinter;
+import org.danf.dlpengine.model.ValueCount;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Distinct count ({@link HyperLogLog}) and most frequent values ({@link SpaceSaving}) of the values matched for a single sensitive data type, over
+ * their salted fingerprints (see {@link ValueStatistics}) - values themselves are never held.
+ * <p>
+ * Sketches are mergeable, and can be encoded to be merged on another node (see {@link #encode()}). Only sketches of fingerprints made with the same
+ * salt can be merged, which is why a sketch carries its salt's check value (see {@link Fingerprinter#saltCheck()}).
+ * Not thread safe.
+ */
+public class ValueSketch {
+
+    private static final byte ENCODING_VERSION = 2;
+
+    private final long saltCheck;
+    private final HyperLogLog distinct;
+    private final SpaceSaving frequent;
+
+    public ValueSketch(long saltCheck, int precision, int capacity) {
+        this(saltCheck, new HyperLogLog(precision), new SpaceSaving(capacity));
+    }
+
+    private ValueSketch(long saltCheck, HyperLogLog distinct, SpaceSaving frequent) {
+        this.saltCheck = saltCheck;
+        this.distinct = distinct;
+        this.frequent = frequent;
+    }
+
+    public void add(long fingerprint) {
+        distinct.add(fingerprint);
+        frequent.add(fingerprint);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the other sketch was made with a different salt or settings.
+     */
+    public void merge(ValueSketch other) {
+        if (other.saltCheck != saltCheck) {
+            throw new IllegalArgumentException("Can't merge value sketches of fingerprints made with different salts");
+        }
+        distinct.merge(other.distinct);
+        frequent.merge(other.frequent);
+    }
+
+    public ValueSketch copy() {
+        return decode(encode());
+    }
+
+    public long getDistinctCount() {
+        return distinct.estimate();
+    }
+
+    /**
+     * @return the (up to) k most frequent values, identified by their fingerprints in hex.
+     */
+    public List<ValueCount> getTopValues(int k) {
+        var top = frequent.top(k);
+        var values = new ArrayList<ValueCount>(top.size());
+        for (var counter : top) {
+            values.add(ValueCount.builder()
+                    .id(String.format("%016x", counter.getKey()))
+                    .count(counter.getCount())
+                    .error(counter.getError())
+                    .build());
+        }
+        return values;
+    }
+
+    /**
+     * Layout: version (1 byte), salt check (long), HyperLogLog registers count (int) and registers (a byte each), Space-Saving capacity (int), counters count (int)
+     * and counters (key, count and error, a long each).
+     */
+    public byte[] encode() {
+        var registers = distinct.getRegisters();
+        var counters = frequent.top(frequent.getCapacity());
+        var buffer = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + registers.length + 2 * Integer.BYTES + counters.size() * 3 * Long.BYTES)
+                .put(ENCODING_VERSION)
+                .putLong(saltCheck)
+                .putInt(registers.length)
+                .put(registers)
+                .putInt(frequent.getCapacity())
+                .putInt(counters.size());
+        for (var counter : counters) {
+            buffer.putLong(counter.getKey()).putLong(counter.getCount()).putLong(counter.getError());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes aren't an encoded sketch.
+     */
+    public static ValueSketch decode(byte[] encoded) {
+        try {
+            var buffer = ByteBuffer.wrap(encoded);
+            if (buffer.get() != ENCODING_VERSION) {
+                throw new IllegalArgumentException("Unknown value sketch encoding");
+            }
+            var saltCheck = buffer.getLong();
+            var registers = new byte[buffer.getInt()];
+            buffer.get(registers);
+            var frequent = new SpaceSaving(buffer.getInt());
+            var counters = buffer.getInt();
+            for (int i = 0; i < counters; i++) {
+                frequent.put(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            }
+            return new ValueSketch(saltCheck, HyperLogLog.of(registers), frequent);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated value sketch");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.danf.dlpengine.sketch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.danf.dlpengine.edm.Fingerprinter;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Settings of the distinct / most frequent value statistics reported by policies with distinct-values enabled, see
+ * {@link org.danf.dlpengine.config.PolicyProperties.Profile#isDistinctValues()}.
+ * <p>
+ * Matched values are reduced to salted fingerprints (see {@link Fingerprinter}) as soon as they're matched, the same value written differently (e.g.
+ * an SSN with or without dashes) has the same fingerprint. Reports identify frequent values by fingerprint only, which can be correlated across scans
+ * but not reversed without the salt (engine.distinct-values.salt).
+ * <p>
+ * IMPLEMENTATION NOTES:
+ * Without a configured salt a random one is made on startup, so fingerprints are only comparable within the same process - fine for a single node,
+ * but every node taking part in sharded scans (see {@link org.danf.dlpengine.service.ShardedScanService}) must be configured with the same salt
+ * for their sketches to merge.
+ */
+@Slf4j
+@Component
+public class ValueStatistics {
+
+    private static final int GENERATED_SALT_BYTES = 32;
+
+    private final Fingerprinter fingerprinter;
+    private final long saltCheck;
+    private final int precision;
+    private final int capacity;
+    private final int topValues;
+
+    @Autowired
+    public ValueStatistics(@Value("${engine.distinct-values.salt:}") String salt,
+                           @Value("${engine.distinct-values.precision:14}") int precision,
+                           @Value("${engine.distinct-values.capacity:100}") int capacity,
+                           @Value("${engine.distinct-values.top-values:10}") int topValues) {
+        if (!StringUtils.hasText(salt)) {
+            log.info("No engine.distinct-values.salt configured, value fingerprints are only comparable within this process");
+            var generated = new byte[GENERATED_SALT_BYTES];
+            new SecureRandom().nextBytes(generated);
+            salt = Base64.getEncoder().encodeToString(generated);
+        }
+        if (topValues > capacity) {
+            throw new IllegalArgumentException("engine.distinct-values.top-values can't be more than engine.distinct-values.capacity");
+        }
+        this.fingerprinter = new Fingerprinter(salt);
+        this.saltCheck = fingerprinter.saltCheck();
+        this.precision = precision;
+        this.capacity = capacity;
+        this.topValues = topValues;
+        // Fail on startup rather than on the first scan
+        newSketch();
+    }
+
+    public ValueSketch newSketch() {
+        return new ValueSketch(saltCheck, precision, capacity);
+    }
+
+    /**
+     * Adds the value's fingerprint to the sketch. Values which can't be fingerprinted (not a valid value of the type after all) are skipped.
+     */
+    public void add(ValueSketch sketch, SensitiveDataType valueType, CharSequence value) {
+        try {
+            sketch.add(fingerprinter.fingerprint(valueType, value));
+        } catch (IllegalArgumentException e) {
+            log.debug("Skipped a {} value that can't be fingerprinted: {}", valueType, e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of most frequent values to report per type.
+     */
+    public int getTopValues() {
+        return topValues;
+    }
+}
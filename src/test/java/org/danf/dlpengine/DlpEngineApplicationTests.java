@@ -3,30 +3,46 @@ package org.danf.dlpengine;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.internal.bytebuddy.utility.RandomString;
+import org.danf.dlpengine.job.ScanJobService;
+import org.danf.dlpengine.model.ScanJob;
+import org.danf.dlpengine.model.ScanJobStatus;
 import org.danf.dlpengine.model.ScanRequest;
 import org.danf.dlpengine.model.ScanResults;
 import org.danf.dlpengine.rest.ScanController;
+import org.danf.dlpengine.service.SampledScanService;
+import org.danf.dlpengine.service.ScanPolicyRegistry;
 import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.danf.dlpengine.service.ShardedScanService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.danf.dlpengine.common.TestUtils.EMPTY_SCAN_RESULT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -37,6 +53,8 @@ class DlpEngineApplicationTests {
 
     private static final String SCAN_TEXT_ENDPOINT = "/api/v1/scan/text";
     private static final String SCAN_FILE_ENDPOINT = "/api/v1/scan/file";
+    private static final String SCAN_JOBS_ENDPOINT = "/api/v1/scan/jobs";
+    private static final String SCAN_RANGE_ENDPOINT = "/api/v1/scan/range";
     private final ScanResults EMPTY_SCAN_RESULTS = ScanResults.builder().results(List.of(EMPTY_SCAN_RESULT)).build();
     private final ScanResults ERROR_SCAN_RESULTS = ScanResults.builder().errors(Map.of("Some Scanner", "Some Error")).build();
     private String EMPTY_SCAN_RESULTS_JSON;
@@ -47,6 +65,18 @@ class DlpEngineApplicationTests {
     @MockBean
     private SensitiveDataScanService service;
 
+    @MockBean
+    private SampledScanService sampledService;
+
+    @MockBean
+    private ShardedScanService shardedService;
+
+    @MockBean
+    private ScanPolicyRegistry policyRegistry;
+
+    @MockBean
+    private ScanJobService jobService;
+
     @BeforeEach
     public void setup() throws JsonProcessingException {
         EMPTY_SCAN_RESULTS_JSON = mapper.writeValueAsString(EMPTY_SCAN_RESULTS);
@@ -55,7 +85,7 @@ class DlpEngineApplicationTests {
     @Test
     void testScanTextEndpoint() throws Exception {
         var request = makeRequest(SCAN_TEXT_ENDPOINT, ScanRequest.builder().text("some text").build());
-        when(service.scan(Mockito.anyString())).thenReturn(EMPTY_SCAN_RESULTS);
+        when(service.scan(Mockito.anyString(), any())).thenReturn(EMPTY_SCAN_RESULTS);
         mockMvc.perform(request)
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -66,13 +96,106 @@ class DlpEngineApplicationTests {
     void testScanFileEndpoint() throws Exception {
         var filePath = getClass().getResource("/text_with_iban.txt").getPath();
         var request = makeRequest(SCAN_FILE_ENDPOINT, ScanRequest.builder().filePath(filePath).build());
-        when(service.scanFile(anyString())).thenReturn(EMPTY_SCAN_RESULTS);
+        when(service.scanFile(anyString(), any())).thenReturn(EMPTY_SCAN_RESULTS);
         mockMvc.perform(request)
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().json(EMPTY_SCAN_RESULTS_JSON));
     }
 
+    @Test
+    void testSampledScanFileEndpoint() throws Exception {
+        var filePath = getClass().getResource("/text_with_iban.txt").getPath();
+        var request = makeRequest(SCAN_FILE_ENDPOINT, ScanRequest.builder().filePath(filePath).sample(true).build());
+        when(sampledService.scanFile(anyString(), any())).thenReturn(EMPTY_SCAN_RESULTS);
+        mockMvc.perform(request)
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(EMPTY_SCAN_RESULTS_JSON));
+        verify(service, never()).scanFile(anyString(), any());
+    }
+
+    @Test
+    void testShardedScanFileEndpoint() throws Exception {
+        var filePath = getClass().getResource("/text_with_iban.txt").getPath();
+        when(shardedService.scanFile(anyString(), any())).thenReturn(EMPTY_SCAN_RESULTS);
+        mockMvc.perform(makeRequest(SCAN_FILE_ENDPOINT, ScanRequest.builder().filePath(filePath).sharded(true).build()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(EMPTY_SCAN_RESULTS_JSON));
+        verify(service, never()).scanFile(anyString(), any());
+
+        mockMvc.perform(makeRequest(SCAN_FILE_ENDPOINT, ScanRequest.builder().filePath(filePath).sharded(true).sample(true).build()))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertThat(result.getResponse().getErrorMessage()).contains("can't be both sampled and sharded"));
+    }
+
+    @Test
+    void testScanRangeEndpoint() throws Exception {
+        var filePath = getClass().getResource("/text_with_iban.txt").getPath();
+        when(service.scanRange(anyString(), any(), anyLong(), anyLong())).thenReturn(EMPTY_SCAN_RESULTS);
+        mockMvc.perform(makeRequest(SCAN_RANGE_ENDPOINT, ScanRequest.builder().filePath(filePath).rangeStart(10).rangeEnd(20).build()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(EMPTY_SCAN_RESULTS_JSON));
+        verify(service).scanRange(eq(filePath), any(), eq(10L), eq(20L));
+
+        mockMvc.perform(makeRequest(SCAN_RANGE_ENDPOINT, ScanRequest.builder().filePath(filePath).rangeStart(10).rangeEnd(10).build()))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertThat(result.getResponse().getErrorMessage()).contains("must specify a non-empty range"));
+    }
+
+    @Test
+    void testScanJobEndpoints() throws Exception {
+        var filePath = getClass().getResource("/text_with_iban.txt").getPath();
+        var job = ScanJob.builder().id("some-id").status(ScanJobStatus.QUEUED).filePath(filePath).build();
+        when(jobService.submit(any())).thenReturn(job);
+        mockMvc.perform(makeRequest(SCAN_JOBS_ENDPOINT, ScanRequest.builder().filePath(filePath).build()))
+                .andDo(print())
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("some-id"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        when(jobService.getJob("some-id")).thenReturn(job.toBuilder().status(ScanJobStatus.DONE).results(EMPTY_SCAN_RESULTS).build());
+        mockMvc.perform(get(SCAN_JOBS_ENDPOINT + "/some-id").accept(APPLICATION_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"));
+
+        when(jobService.getJob("nope")).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Scan job not found: nope"));
+        mockMvc.perform(get(SCAN_JOBS_ENDPOINT + "/nope").accept(APPLICATION_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(makeRequest(SCAN_JOBS_ENDPOINT, ScanRequest.builder().filePath("nope-nope-nope").build()))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+
+        // Sharded jobs are run by the job service, but not sampled and sharded at once
+        var sharded = ScanRequest.builder().filePath(filePath).sharded(true).build();
+        mockMvc.perform(makeRequest(SCAN_JOBS_ENDPOINT, sharded))
+                .andDo(print())
+                .andExpect(status().isAccepted());
+        verify(jobService).submit(sharded);
+        mockMvc.perform(makeRequest(SCAN_JOBS_ENDPOINT, ScanRequest.builder().filePath(filePath).sharded(true).sample(true).build()))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertThat(result.getResponse().getErrorMessage()).contains("can't be both sampled and sharded"));
+        verify(jobService, times(2)).submit(any());
+    }
+
+    @Test
+    public void testUnknownPolicy() throws Exception {
+        when(policyRegistry.getPolicy("nope")).thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown policy 'nope'."));
+        var request = makeRequest(SCAN_TEXT_ENDPOINT, ScanRequest.builder().text("some text").policy("nope").build());
+        mockMvc.perform(request)
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertThat(result.getResponse().getErrorMessage()).contains("Unknown policy 'nope'."));
+    }
+
     @Test
     public void testRestEndpointEmptyRequestValidation() throws Exception {
         var badEmptyRequest = makeRequest(SCAN_TEXT_ENDPOINT, ScanRequest.builder().build());
@@ -110,7 +233,7 @@ class DlpEngineApplicationTests {
     public void testErrorsResponse() throws Exception {
         var errorResponse = mapper.writeValueAsString(ERROR_SCAN_RESULTS);
         var request = makeRequest(SCAN_TEXT_ENDPOINT, ScanRequest.builder().text("some text").build());
-        when(service.scan(Mockito.anyString())).thenReturn(ERROR_SCAN_RESULTS);
+        when(service.scan(Mockito.anyString(), any())).thenReturn(ERROR_SCAN_RESULTS);
         mockMvc.perform(request)
                 .andDo(print())
                 .andExpect(status().isOk())
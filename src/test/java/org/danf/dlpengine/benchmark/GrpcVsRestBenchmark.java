@@ -0,0 +1,182 @@
+package org.danf.dlpengine.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.danf.dlpengine.DlpEngineApplication;
+import org.danf.dlpengine.grpc.GrpcServer;
+import org.danf.dlpengine.grpc.proto.DlpScanServiceGrpc;
+import org.danf.dlpengine.grpc.proto.ScanBatchReply;
+import org.danf.dlpengine.grpc.proto.ScanBatchRequest;
+import org.danf.dlpengine.grpc.proto.ScanPayload;
+import org.danf.dlpengine.grpc.proto.ScanReply;
+import org.danf.dlpengine.model.ScanRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares scanning over the REST API with the gRPC API, both served by a real (in-process) instance of the engine on localhost.
+ * The REST "batch" is a sequence of single requests since there's no batch REST endpoint - that being the point of comparison. Batch benchmarks
+ * report throughput per scanned payload so all numbers are comparable.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.args="GrpcVsRestBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class GrpcVsRestBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+    private static final String TEXT = "Please send the payment to DE44 5001 0517 5407 3249 31 and use \"quotes\", my SSN is 123-45-6789.\n"
+            + "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.\n";
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({"1", "2", "8"})
+        int textRepeats;
+
+        ConfigurableApplicationContext context;
+        HttpClient httpClient;
+        URI scanTextUri;
+        ManagedChannel channel;
+        DlpScanServiceGrpc.DlpScanServiceBlockingStub blockingStub;
+        DlpScanServiceGrpc.DlpScanServiceStub asyncStub;
+        ObjectMapper mapper = new ObjectMapper();
+        byte[] restBody;
+        ScanPayload payload;
+        ScanBatchRequest batchRequest;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            context = new SpringApplicationBuilder(DlpEngineApplication.class)
+                    .properties("server.port=0", "engine.grpc.port=0", "logging.level.org.danf=WARN")
+                    .run();
+            int httpPort = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            int grpcPort = context.getBean(GrpcServer.class).getPort();
+
+            var text = TEXT.repeat(textRepeats);
+            httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            scanTextUri = URI.create("http://localhost:" + httpPort + "/api/v1/scan/text");
+            restBody = mapper.writeValueAsBytes(ScanRequest.builder().text(text).build());
+
+            channel = NettyChannelBuilder.forAddress("localhost", grpcPort).usePlaintext().build();
+            blockingStub = DlpScanServiceGrpc.newBlockingStub(channel);
+            asyncStub = DlpScanServiceGrpc.newStub(channel);
+            payload = ScanPayload.newBuilder().setData(ByteString.copyFrom(text, StandardCharsets.UTF_8)).build();
+            var batch = ScanBatchRequest.newBuilder();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.addPayloads(payload);
+            }
+            batchRequest = batch.build();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws Exception {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            context.close();
+        }
+
+        JsonNode restScan() throws Exception {
+            var request = HttpRequest.newBuilder(scanTextUri)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(restBody))
+                    .build();
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return mapper.readTree(response.body());
+        }
+    }
+
+    @Benchmark
+    public JsonNode restSingle(Engine engine) throws Exception {
+        return engine.restScan();
+    }
+
+    @Benchmark
+    public ScanReply grpcUnary(Engine engine) {
+        return engine.blockingStub.scan(engine.payload);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public JsonNode restBatch(Engine engine) throws Exception {
+        JsonNode last = null;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            last = engine.restScan();
+        }
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ScanBatchReply grpcBatch(Engine engine) {
+        return engine.blockingStub.scanBatch(engine.batchRequest);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ScanBatchReply grpcClientStream(Engine engine) throws Exception {
+        var done = new CountDownLatch(1);
+        var reply = new AtomicReference<ScanBatchReply>();
+        var requests = engine.asyncStub.scanStream(new StreamObserver<>() {
+            @Override
+            public void onNext(ScanBatchReply value) {
+                reply.set(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            requests.onNext(engine.payload);
+        }
+        requests.onCompleted();
+        done.await();
+        return reply.get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(GrpcVsRestBenchmark.class.getSimpleName()).build()).run();
+    }
+}
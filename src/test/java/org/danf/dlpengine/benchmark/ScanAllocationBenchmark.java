@@ -0,0 +1,81 @@
+package org.danf.dlpengine.benchmark;
+
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.scanner.IbanScanner;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
+import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the allocation of a single text scan (the per request path, no Spring / HTTP in the way) - look at the gc.alloc.rate.norm column, bytes
+ * allocated per scan. Inputs are:
+ * - clean - no candidates at all, dismissed by the policy's candidate pattern.
+ * - context - context keywords and an IBAN with a bad checksum, so every scanner's patterns run but nothing is reported.
+ * - matches - an SSN and a valid IBAN, both reported.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.args="ScanAllocationBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class ScanAllocationBenchmark {
+
+    private static final String LOREM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.\n";
+
+    @Param({"clean", "context", "matches"})
+    String input;
+
+    private SensitiveDataScanService service;
+    private String text;
+
+    @Setup
+    public void setup() {
+        service = new SensitiveDataScanService(List.of(new IbanScanner(), new SocialSecurityNumberScanner()));
+        switch (input) {
+            case "clean":
+                text = LOREM.repeat(4);
+                break;
+            case "context":
+                text = LOREM + "Your Social Security number (SSN) is on file, pay to DE00 5001 0517 5407 3249 31.\n" + LOREM;
+                break;
+            case "matches":
+                text = LOREM + "Please send the payment to DE44 5001 0517 5407 3249 31, my SSN is 123-45-6789.\n" + LOREM;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown input " + input);
+        }
+    }
+
+    @Benchmark
+    public ScanResults scan() {
+        return service.scan(text);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ScanAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,162 @@
+package org.danf.dlpengine.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast a new engine process becomes useful, the way a freshly autoscaled replica does: the time from launching the JVM until the
+ * first scan request is answered (time-to-first-scan), and the process' resident memory (RSS) at that point.
+ * <p>
+ * Each variant is started a number of times, every run appended to a CSV file so that numbers can be tracked across changes:
+ * - default - the application with its default configuration.
+ * - prod - the prod profile (lazy initialization, no Swagger).
+ * - prod-cds - the prod profile with the AppCDS archive.
+ * <p>
+ * This isn't a JMH benchmark since every measurement is a new process. Runs the jar built under target/cds, so the archive is only used if it was
+ * built by the same JVM that runs this (otherwise the JVM silently runs without it).
+ * <p>
+ * Run with: mvn -Pappcds package -DskipTests && mvn -Pstartup-benchmark test-compile exec:exec
+ */
+public class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    private static final String SCAN_BODY = "{\"text\": \"SSN 123-45-6789, pay to DE44 5001 0517 5407 3249 31\"}";
+    private static final String CSV_HEADER = "timestamp,variant,run,time_to_first_scan_ms,rss_kb";
+
+    private enum Variant {
+        DEFAULT("default"),
+        PROD("prod", "-Dspring.profiles.active=prod"),
+        PROD_CDS("prod-cds", "-Dspring.profiles.active=prod", "-Xshare:auto", "-XX:SharedArchiveFile=dlp-engine.jsa");
+
+        private final String label;
+        private final List<String> jvmArgs;
+
+        Variant(String label, String... jvmArgs) {
+            this.label = label;
+            this.jvmArgs = List.of(jvmArgs);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var cdsDirectory = Path.of(args.length > 0 ? args[0] : "target/cds");
+        var runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        var csv = Path.of(args.length > 2 ? args[2] : "target/startup-benchmark.csv");
+
+        var jar = findJar(cdsDirectory);
+        if (!Files.exists(csv)) {
+            Files.writeString(csv, CSV_HEADER + System.lineSeparator());
+        }
+
+        var client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+        var timestamp = Instant.now().toString();
+        for (var variant : Variant.values()) {
+            var timesToFirstScan = new long[runs];
+            var rss = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                var measurement = measure(client, cdsDirectory, jar, variant);
+                timesToFirstScan[run] = measurement[0];
+                rss[run] = measurement[1];
+                Files.writeString(csv, String.join(",", timestamp, variant.label, String.valueOf(run), String.valueOf(measurement[0]),
+                        String.valueOf(measurement[1])) + System.lineSeparator(), StandardOpenOption.APPEND);
+            }
+            System.out.printf("%-10s time-to-first-scan median %5d ms, RSS median %7d KB%n", variant.label, median(timesToFirstScan), median(rss));
+        }
+        System.out.println("Results appended to " + csv);
+    }
+
+    /**
+     * @return time-to-first-scan in millis and RSS in KB (-1 where RSS can't be read, i.e. not on Linux).
+     */
+    private static long[] measure(HttpClient client, Path cdsDirectory, Path jar, Variant variant) throws Exception {
+        var port = freePort();
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(variant.jvmArgs);
+        command.addAll(List.of(
+                "-Dserver.port=" + port,
+                "-Dengine.grpc.port=0",
+                "-Dengine.jobs.store-directory=" + Files.createTempDirectory("startup-benchmark-jobs"),
+                "-jar", jar.getFileName().toString()));
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/scan/text"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(SCAN_BODY))
+                .build();
+
+        var start = System.nanoTime();
+        var process = new ProcessBuilder(command)
+                .directory(cdsDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            var deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Engine process exited with " + process.exitValue() + " (" + variant.label + ")");
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        var timeToFirstScan = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        return new long[]{timeToFirstScan, readRssKb(process.pid())};
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("Engine didn't answer a scan within " + STARTUP_TIMEOUT + " (" + variant.label + ")");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long readRssKb(long pid) throws IOException {
+        var status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (var line : Files.readAllLines(status)) {
+            // e.g. "VmRSS:	  123456 kB"
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static Path findJar(Path cdsDirectory) throws IOException {
+        try (var files = Files.list(cdsDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith("-cds.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No jar under " + cdsDirectory + ", build with: mvn -Pappcds package"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.commons.io.IOUtils;
 import org.danf.dlpengine.model.ScanResult;
+import org.danf.dlpengine.model.SensitiveDataType;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -11,8 +12,8 @@ import java.nio.charset.StandardCharsets;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class TestUtils {
 
-    public static final ScanResult EMPTY_SCAN_RESULT = ScanResult.builder().build();
-    public static final ScanResult ONE_SCAN_RESULT = ScanResult.builder().count(1).build();
+    public static final ScanResult EMPTY_SCAN_RESULT = ScanResult.builder().type(SensitiveDataType.SSN).build();
+    public static final ScanResult ONE_SCAN_RESULT = ScanResult.builder().type(SensitiveDataType.SSN).count(1).build();
 
     public static String getResourceAsString(Class<?> clazz, String resourcePath) throws IOException {
         return IOUtils.toString(clazz.getResource(resourcePath), StandardCharsets.UTF_8);
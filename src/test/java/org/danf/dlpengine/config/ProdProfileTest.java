@@ -0,0 +1,37 @@
+package org.danf.dlpengine.config;
+
+import org.danf.dlpengine.DlpEngineApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The prod profile initializes beans lazily, except for the scanning path - which must be ready before the first scan request arrives.
+ */
+public class ProdProfileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testScanningPathIsCreatedOnStartup() {
+        try (var context = new SpringApplicationBuilder(DlpEngineApplication.class).profiles("prod").run(
+                "--server.port=0",
+                "--engine.grpc.enabled=false",
+                "--engine.jobs.store-directory=" + tempDir.resolve("jobs"))) {
+            var beanFactory = context.getBeanFactory();
+            for (var bean : new String[]{"scanController", "sensitiveDataScanService", "sampledScanService", "shardedScanService", "scanPolicyRegistry",
+                    "socialSecurityNumberScanner", "ibanScanner", "requestMappingHandlerAdapter"}) {
+                assertThat(beanFactory.containsSingleton(bean)).as(bean).isTrue();
+            }
+            // Not on the scanning path, so still lazy
+            assertThat(beanFactory.containsSingleton("profilingController")).isFalse();
+            assertThat(context.getBean(DispatcherServlet.class)).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.danf.dlpengine.edm;
+
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FingerprintIndexTest {
+
+    private static final String SALT = "pepper";
+    private static final int KNOWN_SSNS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final Fingerprinter fingerprinter = new Fingerprinter(SALT);
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, FingerprintIndexBuilder.DEFAULT_BLOOM_BITS_PER_ENTRY})
+    public void testContainsKnownValuesOnly(int bloomBitsPerEntry) throws IOException {
+        var index = build(knownSsns() + "IBAN,DE44 5001 0517 5407 3249 31\n", bloomBitsPerEntry);
+        assertThat(index.size()).isEqualTo(KNOWN_SSNS + 1);
+
+        for (int i = 0; i < KNOWN_SSNS; i++) {
+            assertThat(index.contains(SensitiveDataType.SSN, ssn(i))).isTrue();
+        }
+        for (int i = KNOWN_SSNS; i < 2 * KNOWN_SSNS; i++) {
+            assertThat(index.contains(SensitiveDataType.SSN, ssn(i))).isFalse();
+        }
+        assertThat(index.contains(SensitiveDataType.IBAN, "DE44 5001 0517 5407 3249 31")).isTrue();
+        assertThat(index.contains(SensitiveDataType.IBAN, "GB82 WEST 1234 5698 7654 32")).isFalse();
+    }
+
+    @Test
+    public void testValuesAreNormalized() throws IOException {
+        var index = build("SSN,123-45-6789\nIBAN,de44500105175407324931\n", FingerprintIndexBuilder.DEFAULT_BLOOM_BITS_PER_ENTRY);
+        assertThat(index.contains(SensitiveDataType.SSN, "123 45 6789")).isTrue();
+        assertThat(index.contains(SensitiveDataType.SSN, "123456789")).isTrue();
+        assertThat(index.contains(SensitiveDataType.IBAN, "DE44 5001 0517 5407 3249 31")).isTrue();
+        // Same digits, different type
+        assertThat(index.contains(SensitiveDataType.IBAN, "123456789")).isFalse();
+        assertThat(index.contains(SensitiveDataType.SSN, "12345678")).isFalse();
+    }
+
+    @Test
+    public void testDuplicatesAndCommentsAreSkipped() throws IOException {
+        var index = build("# known values\nSSN,123-45-6789\n\nSSN,123456789\nSSN,987-65-4321\n", 0);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEmptyIndex() throws IOException {
+        var index = build("", FingerprintIndexBuilder.DEFAULT_BLOOM_BITS_PER_ENTRY);
+        assertThat(index.size()).isZero();
+        assertThat(index.contains(SensitiveDataType.SSN, "123-45-6789")).isFalse();
+    }
+
+    @Test
+    public void testWrongSalt() throws IOException {
+        build("SSN,123-45-6789\n", 0);
+        assertThatThrownBy(() -> FingerprintIndex.open(tempDir.resolve("index.edm"), new Fingerprinter("salt"), false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("different salt");
+    }
+
+    @Test
+    public void testInvalidValues() {
+        assertThatThrownBy(() -> build("SSN,123-45-6789\nSSN,123-45\n", 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2")
+                .hasMessageNotContaining("123-45");
+        assertThatThrownBy(() -> build("PHONE,555-1234\n", 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 1");
+    }
+
+    @Test
+    public void testNotAnIndex() throws IOException {
+        var file = Files.writeString(tempDir.resolve("not-an-index.edm"), "SSN,123-45-6789\n");
+        assertThatThrownBy(() -> FingerprintIndex.open(file, fingerprinter, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Not an EDM index file");
+    }
+
+    private FingerprintIndex build(String values, int bloomBitsPerEntry) throws IOException {
+        var valuesFile = Files.writeString(tempDir.resolve("values.csv"), values, StandardCharsets.UTF_8);
+        var indexFile = tempDir.resolve("index.edm");
+        FingerprintIndexBuilder.build(valuesFile, indexFile, fingerprinter, bloomBitsPerEntry);
+        return FingerprintIndex.open(indexFile, fingerprinter, true);
+    }
+
+    private static String knownSsns() {
+        return IntStream.range(0, KNOWN_SSNS).mapToObj(i -> "SSN," + ssn(i) + "\n").collect(Collectors.joining());
+    }
+
+    private static String ssn(int i) {
+        return String.format("%09d", 100_000_000 + i * 7919);
+    }
+}
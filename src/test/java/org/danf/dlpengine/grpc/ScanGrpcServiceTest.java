@@ -0,0 +1,184 @@
+package org.danf.dlpengine.grpc;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.danf.dlpengine.grpc.proto.DataType;
+import org.danf.dlpengine.grpc.proto.DlpScanServiceGrpc;
+import org.danf.dlpengine.grpc.proto.ScanBatchReply;
+import org.danf.dlpengine.grpc.proto.ScanBatchRequest;
+import org.danf.dlpengine.grpc.proto.ScanPayload;
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.service.ScanPolicy;
+import org.danf.dlpengine.service.ScanPolicyRegistry;
+import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.danf.dlpengine.common.TestUtils.ONE_SCAN_RESULT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScanGrpcServiceTest {
+
+    private static final int MAX_INPUT_LENGTH = 10;
+    private static final int MAX_BATCH_SIZE = 3;
+    private static final ScanResults ONE_SCAN_RESULTS = ScanResults.builder().results(List.of(ONE_SCAN_RESULT)).errors(Map.of()).build();
+
+    private static final ScanPolicy DEFAULT_POLICY = ScanPolicy.defaultPolicy(List.of());
+
+    private SensitiveDataScanService scanService;
+    private ScanPolicyRegistry policyRegistry;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        scanService = Mockito.mock(SensitiveDataScanService.class);
+        policyRegistry = Mockito.mock(ScanPolicyRegistry.class);
+        when(policyRegistry.getPolicy(any())).thenReturn(DEFAULT_POLICY);
+        var name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(new ScanGrpcService(scanService, policyRegistry, MAX_INPUT_LENGTH, MAX_BATCH_SIZE))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    public void clean() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testUnaryScan() {
+        when(scanService.scan(anyString(), any())).thenReturn(ONE_SCAN_RESULTS);
+        var reply = DlpScanServiceGrpc.newBlockingStub(channel).scan(payload("some text"));
+        assertThat(reply.getResultsCount()).isEqualTo(1);
+        assertThat(reply.getResults(0).getType()).isEqualTo(DataType.SSN);
+        assertThat(reply.getResults(0).getCount()).isEqualTo(1);
+        verify(scanService).scan("some text", DEFAULT_POLICY);
+    }
+
+    @Test
+    public void testUnaryScanValidation() {
+        var stub = DlpScanServiceGrpc.newBlockingStub(channel);
+        assertThatThrownBy(() -> stub.scan(payload(" ")))
+                .isInstanceOf(StatusRuntimeException.class)
+                .hasMessageContaining("INVALID_ARGUMENT")
+                .hasMessageContaining("The 'data' field must be specified.");
+        assertThatThrownBy(() -> stub.scan(payload("way too long for the limit")))
+                .isInstanceOf(StatusRuntimeException.class)
+                .hasMessageContaining("Input exceeds max allowed body size");
+        verify(scanService, never()).scan(anyString(), any());
+    }
+
+    @Test
+    public void testUnknownPolicy() {
+        when(policyRegistry.getPolicy("nope")).thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown policy 'nope'."));
+        var payload = ScanPayload.newBuilder(payload("some text")).setPolicy("nope").build();
+        assertThatThrownBy(() -> DlpScanServiceGrpc.newBlockingStub(channel).scan(payload))
+                .isInstanceOf(StatusRuntimeException.class)
+                .hasMessageContaining("INVALID_ARGUMENT")
+                .hasMessageContaining("Unknown policy 'nope'.");
+    }
+
+    @Test
+    public void testBatchScan() {
+        when(scanService.scan(anyString(), any())).thenReturn(ONE_SCAN_RESULTS);
+        var request = ScanBatchRequest.newBuilder().addPayloads(payload("one")).addPayloads(payload("two")).build();
+        var reply = DlpScanServiceGrpc.newBlockingStub(channel).scanBatch(request);
+        assertThat(reply.getRepliesCount()).isEqualTo(2);
+        verify(scanService).scan("one", DEFAULT_POLICY);
+        verify(scanService).scan("two", DEFAULT_POLICY);
+    }
+
+    @Test
+    public void testBatchSizeValidation() {
+        var request = ScanBatchRequest.newBuilder();
+        for (int i = 0; i <= MAX_BATCH_SIZE; i++) {
+            request.addPayloads(payload("text"));
+        }
+        assertThatThrownBy(() -> DlpScanServiceGrpc.newBlockingStub(channel).scanBatch(request.build()))
+                .isInstanceOf(StatusRuntimeException.class)
+                .hasMessageContaining("Batch exceeds max allowed size");
+    }
+
+    @Test
+    public void testStreamScan() throws Exception {
+        when(scanService.scan(anyString(), any())).thenReturn(ONE_SCAN_RESULTS);
+        var reply = new CompletableFuture<ScanBatchReply>();
+        var requests = DlpScanServiceGrpc.newStub(channel).scanStream(new StreamObserver<>() {
+            @Override
+            public void onNext(ScanBatchReply value) {
+                reply.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                reply.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        requests.onNext(payload("one"));
+        requests.onNext(payload("two"));
+        requests.onNext(payload("three"));
+        requests.onCompleted();
+
+        assertThat(reply.get(5, TimeUnit.SECONDS).getRepliesCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testStreamScanValidation() {
+        var reply = new CompletableFuture<ScanBatchReply>();
+        var requests = DlpScanServiceGrpc.newStub(channel).scanStream(new StreamObserver<>() {
+            @Override
+            public void onNext(ScanBatchReply value) {
+                reply.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                reply.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        requests.onNext(payload(""));
+
+        assertThatThrownBy(() -> reply.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(StatusRuntimeException.class);
+        assertThat(Status.fromThrowable(reply.handle((r, t) -> t).join()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    private static ScanPayload payload(String text) {
+        return ScanPayload.newBuilder().setData(ByteString.copyFrom(text, StandardCharsets.UTF_8)).build();
+    }
+}
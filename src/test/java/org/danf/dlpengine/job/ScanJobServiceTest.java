@@ -0,0 +1,277 @@
+package org.danf.dlpengine.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.danf.dlpengine.config.PolicyProperties;
+import org.danf.dlpengine.model.ScanJob;
+import org.danf.dlpengine.model.ScanJobStatus;
+import org.danf.dlpengine.model.ScanRequest;
+import org.danf.dlpengine.model.ScanResults;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.danf.dlpengine.scanner.IbanScanner;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
+import org.danf.dlpengine.service.SampledScanService;
+import org.danf.dlpengine.service.ScanPolicyRegistry;
+import org.danf.dlpengine.service.SensitiveDataScanService;
+import org.danf.dlpengine.service.ShardedScanService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScanJobServiceTest {
+
+    private static final int LINES = 20_000;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<ScanJobService> services = new ArrayList<>();
+
+    private SensitiveDataScanService scanService;
+    private ShardedScanService shardedScanService;
+    private ScanPolicyRegistry policyRegistry;
+    private Path storeDirectory;
+    private Path file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        var scanners = List.of(new IbanScanner(), new SocialSecurityNumberScanner());
+        scanService = new SensitiveDataScanService(scanners);
+        shardedScanService = mock(ShardedScanService.class);
+        var properties = new PolicyProperties();
+        var ssnOnly = new PolicyProperties.Profile();
+        ssnOnly.setDetectors(List.of(SensitiveDataType.SSN));
+        properties.getPolicies().put("ssn-only", ssnOnly);
+        policyRegistry = new ScanPolicyRegistry(properties, scanners);
+        storeDirectory = tempDir.resolve("jobs");
+        file = writeFile("file.txt");
+    }
+
+    @AfterEach
+    public void clean() {
+        services.forEach(ScanJobService::shutdown);
+    }
+
+    @Test
+    public void testJobRunsToCompletion() throws Exception {
+        var service = newService(scanService, 2, 10);
+        var job = service.submit(request(file));
+        assertThat(job.getId()).isNotBlank();
+        assertThat(job.getTotalBytes()).isEqualTo(Files.size(file));
+
+        var done = awaitFinished(service, job.getId());
+        assertThat(done.getStatus()).isEqualTo(ScanJobStatus.DONE);
+        assertThat(done.getBytesScanned()).isEqualTo(Files.size(file));
+        assertThat(done.getStartedAt()).isNotNull();
+        assertThat(done.getFinishedAt()).isNotNull();
+        assertThat(done.getResults().getResults()).hasSize(1);
+        assertThat(done.getResults().getResults().get(0).getCount()).isEqualTo(LINES / 10);
+    }
+
+    @Test
+    public void testDuplicateSubmissionsCoalesce() throws Exception {
+        var service = newService(scanService, 2, 10);
+        var job = service.submit(request(file));
+        assertThat(service.submit(request(file)).getId()).isEqualTo(job.getId());
+
+        var otherPolicy = request(file);
+        otherPolicy.setPolicy("ssn-only");
+        assertThat(service.submit(otherPolicy).getId()).isNotEqualTo(job.getId());
+
+        // A modified file is a different version of it
+        awaitFinished(service, job.getId());
+        Files.writeString(file, "SSN 123-45-6789\n", StandardCharsets.UTF_8);
+        assertThat(service.submit(request(file)).getId()).isNotEqualTo(job.getId());
+    }
+
+    @Test
+    public void testShardedJob() throws Exception {
+        var shardedResults = ScanResults.builder().results(List.of()).errors(Map.of()).build();
+        when(shardedScanService.scanFile(anyString(), any())).thenReturn(shardedResults);
+        var service = newService(scanService, 1, 10);
+        var sharded = request(file);
+        sharded.setSharded(true);
+        var job = service.submit(sharded);
+        assertThat(job.isSharded()).isTrue();
+        // Not the same job as a local scan of the file
+        assertThat(service.submit(request(file)).getId()).isNotEqualTo(job.getId());
+
+        var done = awaitFinished(service, job.getId());
+        assertThat(done.getStatus()).isEqualTo(ScanJobStatus.DONE);
+        assertThat(done.getResults()).isEqualTo(shardedResults);
+        verify(shardedScanService).scanFile(file.toRealPath().toString(), policyRegistry.getPolicy(null));
+    }
+
+    @Test
+    public void testUnknownJobAndPolicy() {
+        var service = newService(scanService, 1, 10);
+        assertThatThrownBy(() -> service.getJob("nope"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Scan job not found");
+        var request = request(file);
+        request.setPolicy("nope");
+        assertThatThrownBy(() -> service.submit(request))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Unknown policy 'nope'.");
+    }
+
+    @Test
+    public void testJobsSurviveRestart() throws Exception {
+        var store = new ScanJobStore(storeDirectory, mapper);
+        var finished = ScanJob.builder()
+                .id("finished")
+                .status(ScanJobStatus.DONE)
+                .filePath(file.toString())
+                .results(ScanResults.builder().results(List.of()).errors(Map.of()).build())
+                .submittedAt(System.currentTimeMillis())
+                .finishedAt(System.currentTimeMillis())
+                .build();
+        var interrupted = ScanJob.builder()
+                .id("interrupted")
+                .status(ScanJobStatus.RUNNING)
+                .filePath(file.toString())
+                .totalBytes(Files.size(file))
+                .bytesScanned(42)
+                .submittedAt(System.currentTimeMillis())
+                .startedAt(System.currentTimeMillis())
+                .build();
+        store.save(finished);
+        store.save(interrupted);
+
+        var service = newService(scanService, 1, 10);
+        assertThat(service.getJob("finished").getStatus()).isEqualTo(ScanJobStatus.DONE);
+        var rerun = awaitFinished(service, "interrupted");
+        assertThat(rerun.getStatus()).isEqualTo(ScanJobStatus.DONE);
+        assertThat(rerun.getBytesScanned()).isEqualTo(Files.size(file));
+
+        // And the re-run job's results are persisted too, by the time it shows as done
+        var reloaded = loadJob(store, "interrupted");
+        assertThat(reloaded.getStatus()).isEqualTo(ScanJobStatus.DONE);
+        assertThat(reloaded.getResults().getResults()).hasSize(1);
+    }
+
+    @Test
+    public void testRecoveredFailedJobDoesNotReplaceDoneOne() throws Exception {
+        var store = new ScanJobStore(storeDirectory, mapper);
+        var realPath = file.toRealPath().toString();
+        // Both orders of a done and a failed job of the same file, whichever order the store loads them in
+        for (var policy : new String[]{null, "ssn-only"}) {
+            var done = ScanJob.builder()
+                    .id("done-" + policy)
+                    .status(ScanJobStatus.DONE)
+                    .filePath(realPath)
+                    .policy(policy)
+                    .totalBytes(Files.size(file))
+                    .fileLastModified(Files.getLastModifiedTime(file).toMillis())
+                    .results(ScanResults.builder().results(List.of()).errors(Map.of()).build())
+                    .submittedAt(System.currentTimeMillis())
+                    .finishedAt(System.currentTimeMillis())
+                    .build();
+            store.save(done);
+            store.save(done.toBuilder().id("failed-" + policy).status(ScanJobStatus.FAILED).results(null).error("oops").build());
+        }
+
+        var service = newService(scanService, 1, 10);
+        assertThat(service.submit(request(file)).getId()).isEqualTo("done-null");
+        var ssnOnly = request(file);
+        ssnOnly.setPolicy("ssn-only");
+        assertThat(service.submit(ssnOnly).getId()).isEqualTo("done-ssn-only");
+    }
+
+    @Test
+    public void testPriorityOrderAndQueueCapacity() throws Exception {
+        var blockingService = mock(SensitiveDataScanService.class);
+        var release = new CountDownLatch(1);
+        var scanned = Collections.synchronizedList(new ArrayList<String>());
+        when(blockingService.scanFile(anyString(), any(), any())).thenAnswer(invocation -> {
+            release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            scanned.add(Path.of(invocation.<String>getArgument(0)).getFileName().toString());
+            return ScanResults.builder().results(List.of()).errors(Map.of()).build();
+        });
+        var service = newService(blockingService, 1, 2);
+
+        // Occupies the single worker until released
+        var first = service.submit(request(file));
+        awaitStatus(service, first.getId(), ScanJobStatus.RUNNING);
+
+        var low = request(writeFile("low.txt"));
+        var high = request(writeFile("high.txt"));
+        high.setPriority(10);
+        service.submit(low);
+        service.submit(high);
+        assertThatThrownBy(() -> service.submit(request(writeFile("overflow.txt"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("queue is full");
+
+        release.countDown();
+        var lastJob = service.submit(low);
+        awaitFinished(service, lastJob.getId());
+        assertThat(scanned).containsExactly("file.txt", "high.txt", "low.txt");
+    }
+
+    private ScanJobService newService(SensitiveDataScanService scanService, int workers, int queueCapacity) {
+        var service = new ScanJobService(scanService, mock(SampledScanService.class), shardedScanService, policyRegistry, mapper,
+                storeDirectory.toString(), workers, queueCapacity, Duration.ofDays(1));
+        services.add(service);
+        return service;
+    }
+
+    private Path writeFile(String name) throws IOException {
+        var content = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            content.append(i % 10 == 0 ? "SSN 123-45-6789" : "nothing to see on line " + i).append('\n');
+        }
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static ScanJob loadJob(ScanJobStore store, String jobId) {
+        return store.loadAll().stream().filter(job -> job.getId().equals(jobId)).findFirst().orElseThrow();
+    }
+
+    private static ScanRequest request(Path path) {
+        return ScanRequest.builder().filePath(path.toString()).build();
+    }
+
+    private static ScanJob awaitFinished(ScanJobService service, String jobId) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        var job = service.getJob(jobId);
+        while (!job.getStatus().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = service.getJob(jobId);
+        }
+        assertThat(job.getStatus().isFinished()).as("job %s finished", jobId).isTrue();
+        return job;
+    }
+
+    private static void awaitStatus(ScanJobService service, String jobId, ScanJobStatus status) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (service.getJob(jobId).getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.getJob(jobId).getStatus()).isEqualTo(status);
+    }
+}
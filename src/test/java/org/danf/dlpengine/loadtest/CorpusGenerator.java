@@ -0,0 +1,182 @@
+package org.danf.dlpengine.loadtest;
+
+import lombok.Builder;
+import lombok.Value;
+import nl.garvelink.iban.Modulo97;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a synthetic corpus for load tests: lines of filler words, some of which carry valid or invalid (near miss) IBANs and SSNs and SSN
+ * context keywords, at controlled densities. Invalid values are there to cost what they cost in production - IBANs with a wrong checksum are
+ * matched by the IBAN pattern and rejected by validation, SSN look-alikes ("123-45-678") are not matched at all.
+ * <p>
+ * Generation is seeded, so a given seed and densities always generate the same corpus.
+ */
+public class CorpusGenerator {
+
+    private static final String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet", "invoice", "payment", "account", "transfer", "customer", "please",
+            "send", "the", "to", "and", "of", "for", "reference", "number", "balance", "due", "date", "regards", "team", "report", "quarter"};
+    private static final String[] CONTEXT_KEYWORDS = {"SSN", "SSN#", "Soc Sec", "Social Security"};
+    private static final String[] IBAN_COUNTRIES = {"DE", "FR", "GB", "NL", "IT", "ES"};
+    private static final int MIN_WORDS_PER_LINE = 6;
+    private static final int MAX_WORDS_PER_LINE = 16;
+
+    private final Densities densities;
+    private final Random random;
+
+    /**
+     * Per line probability of each kind of value showing up on it, independently of the others.
+     */
+    @Value
+    @Builder
+    public static class Densities {
+        @Builder.Default
+        double validIban = 0.02;
+        @Builder.Default
+        double invalidIban = 0.05;
+        @Builder.Default
+        double validSsn = 0.02;
+        @Builder.Default
+        double invalidSsn = 0.05;
+        @Builder.Default
+        double contextKeyword = 0.05;
+    }
+
+    /**
+     * A generated document and the number of valid values generated into it. Note the SSN scanner may find more SSNs, in the digits of IBANs
+     * written without spaces.
+     */
+    @Value
+    public static class Document {
+        String text;
+        int validIbans;
+        int validSsns;
+    }
+
+    public CorpusGenerator(Densities densities, long seed) {
+        this.densities = densities;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return a document of whole lines, as long as possible up to maxLength characters (but at least one line).
+     */
+    public Document document(int maxLength) {
+        var text = new StringBuilder(maxLength);
+        var counts = new int[2];
+        while (true) {
+            var lineCounts = new int[2];
+            var line = line(lineCounts);
+            if (text.length() > 0 && text.length() + line.length() > maxLength) {
+                break;
+            }
+            text.append(line);
+            counts[0] += lineCounts[0];
+            counts[1] += lineCounts[1];
+        }
+        return new Document(text.toString(), counts[0], counts[1]);
+    }
+
+    /**
+     * @return documents with lengths uniformly spread over [minLength, maxLength].
+     */
+    public List<Document> documents(int count, int minLength, int maxLength) {
+        var documents = new ArrayList<Document>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(document(minLength + random.nextInt(maxLength - minLength + 1)));
+        }
+        return documents;
+    }
+
+    /**
+     * Writes count files of about size bytes each under directory.
+     */
+    public List<Path> writeFiles(Path directory, int count, long size) throws IOException {
+        Files.createDirectories(directory);
+        var files = new ArrayList<Path>(count);
+        for (int i = 0; i < count; i++) {
+            var file = directory.resolve("corpus-" + i + ".txt");
+            try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                var counts = new int[2];
+                for (long written = 0; written < size; ) {
+                    var line = line(counts);
+                    writer.write(line);
+                    written += line.length();
+                }
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private String line(int[] counts) {
+        var values = new ArrayList<String>(5);
+        if (random.nextDouble() < densities.getValidIban()) {
+            values.add(iban(true));
+            counts[0]++;
+        }
+        if (random.nextDouble() < densities.getInvalidIban()) {
+            values.add(iban(false));
+        }
+        if (random.nextDouble() < densities.getValidSsn()) {
+            values.add(ssn());
+            counts[1]++;
+        }
+        if (random.nextDouble() < densities.getInvalidSsn()) {
+            values.add(ssnLookAlike());
+        }
+        if (random.nextDouble() < densities.getContextKeyword()) {
+            values.add(CONTEXT_KEYWORDS[random.nextInt(CONTEXT_KEYWORDS.length)]);
+        }
+        Collections.shuffle(values, random);
+
+        // Values go between filler words, never next to each other (e.g. an IBAN followed by a 4 digit SSN part reads as a longer IBAN)
+        var wordCount = MIN_WORDS_PER_LINE + random.nextInt(MAX_WORDS_PER_LINE - MIN_WORDS_PER_LINE + 1);
+        var line = new StringBuilder();
+        var valueIndex = 0;
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(WORDS[random.nextInt(WORDS.length)]);
+            if (valueIndex < values.size() && random.nextInt(wordCount - i) < values.size() - valueIndex) {
+                line.append(' ').append(values.get(valueIndex++));
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    private String iban(boolean valid) {
+        var bban = new StringBuilder();
+        for (int i = 0; i < 18; i++) {
+            bban.append(random.nextInt(10));
+        }
+        var country = IBAN_COUNTRIES[random.nextInt(IBAN_COUNTRIES.length)];
+        var checkDigits = Modulo97.calculateCheckDigits(country + "00" + bban);
+        if (!valid) {
+            // Any other check digits are wrong
+            checkDigits = 2 + (checkDigits - 2 + 1 + random.nextInt(96)) % 97;
+        }
+        var iban = country + String.format("%02d", checkDigits) + bban;
+        // Half printed in groups of four, as usually written
+        return random.nextBoolean() ? iban : iban.replaceAll("(.{4})(?!$)", "$1 ");
+    }
+
+    private String ssn() {
+        return String.format("%03d-%02d-%04d", 1 + random.nextInt(899), 1 + random.nextInt(99), 1 + random.nextInt(9999));
+    }
+
+    private String ssnLookAlike() {
+        return random.nextBoolean()
+                ? String.format("%03d-%02d-%03d", random.nextInt(1000), random.nextInt(100), random.nextInt(1000))
+                : String.format("%02d-%03d-%04d", random.nextInt(100), random.nextInt(1000), random.nextInt(10000));
+    }
+}
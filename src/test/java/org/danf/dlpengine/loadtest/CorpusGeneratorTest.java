@@ -0,0 +1,67 @@
+package org.danf.dlpengine.loadtest;
+
+import org.danf.dlpengine.model.ScanResult;
+import org.danf.dlpengine.scanner.IbanScanner;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CorpusGeneratorTest {
+
+    private final IbanScanner ibanScanner = new IbanScanner();
+    private final SocialSecurityNumberScanner ssnScanner = new SocialSecurityNumberScanner();
+
+    @Test
+    public void testScannersFindExactlyTheValidValues() {
+        var generator = new CorpusGenerator(CorpusGenerator.Densities.builder().validIban(0.3).invalidIban(0.3).validSsn(0.3).invalidSsn(0.3).build(), 42);
+        int validIbans = 0;
+        int validSsns = 0;
+        for (var document : generator.documents(200, 100, 4000)) {
+            assertThat(document.getText().length()).isLessThanOrEqualTo(4000);
+            assertThat(count(ibanScanner.scan(document.getText()))).as(document.getText()).isEqualTo(document.getValidIbans());
+            // IBANs written without spaces hold 9 digit runs, which the SSN scanner rightly reports
+            assertThat(count(ssnScanner.scan(document.getText()))).as(document.getText()).isGreaterThanOrEqualTo(document.getValidSsns());
+            validIbans += document.getValidIbans();
+            validSsns += document.getValidSsns();
+        }
+        assertThat(validIbans).isPositive();
+        assertThat(validSsns).isPositive();
+    }
+
+    @Test
+    public void testSsnCountsWithoutIbans() {
+        var generator = new CorpusGenerator(CorpusGenerator.Densities.builder().validIban(0).invalidIban(0).validSsn(0.3).invalidSsn(0.3).build(), 42);
+        for (var document : generator.documents(50, 100, 4000)) {
+            assertThat(count(ssnScanner.scan(document.getText()))).as(document.getText()).isEqualTo(document.getValidSsns());
+        }
+    }
+
+    @Test
+    public void testNoSensitiveDataAtZeroDensity() {
+        var none = CorpusGenerator.Densities.builder().validIban(0).invalidIban(0).validSsn(0).invalidSsn(0).contextKeyword(0).build();
+        var document = new CorpusGenerator(none, 7).document(4000);
+        assertThat(count(ibanScanner.scan(document.getText()))).isZero();
+        assertThat(count(ssnScanner.scan(document.getText()))).isZero();
+        assertThat(ssnScanner.scan(document.getText()).getContextRank()).isZero();
+    }
+
+    @Test
+    public void testSameSeedSameCorpus(@TempDir Path tempDir) throws Exception {
+        var densities = CorpusGenerator.Densities.builder().build();
+        var files = new CorpusGenerator(densities, 1).writeFiles(tempDir.resolve("a"), 2, 10_000);
+        var sameFiles = new CorpusGenerator(densities, 1).writeFiles(tempDir.resolve("b"), 2, 10_000);
+        for (int i = 0; i < files.size(); i++) {
+            assertThat(Files.size(files.get(i))).isGreaterThanOrEqualTo(10_000);
+            assertThat(Files.readString(files.get(i))).isEqualTo(Files.readString(sameFiles.get(i)));
+        }
+    }
+
+    private static int count(ScanResult result) {
+        return result.getCount();
+    }
+}
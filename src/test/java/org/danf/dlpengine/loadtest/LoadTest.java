@@ -0,0 +1,475 @@
+package org.danf.dlpengine.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.danf.dlpengine.grpc.proto.DlpScanServiceGrpc;
+import org.danf.dlpengine.grpc.proto.ScanBatchReply;
+import org.danf.dlpengine.grpc.proto.ScanBatchRequest;
+import org.danf.dlpengine.grpc.proto.ScanPayload;
+import org.danf.dlpengine.model.ScanRequest;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a running engine with synthetic load (see {@link CorpusGenerator}) at a fixed request rate, reports latency percentiles and throughput per
+ * endpoint and fails (exits with 1) when any of the configured latency / error SLOs is missed, so it can gate a release. Exits with 2 when the engine
+ * can't be reached.
+ * <p>
+ * - Open loop: requests are sent on a fixed schedule (loadtest.rate per second), whether or not earlier requests were answered - the way independent
+ * clients behave. A closed loop (N threads each waiting for its response before sending the next request) slows down along with the engine and so
+ * hides exactly the stalls a load test is after.
+ * - Latency is measured from the time a request was scheduled to be sent, not from when it actually was, so any delay in sending it (a stalled
+ * generator, exhausted connections) counts as latency rather than silently dropping out of the measurements (coordinated omission). The service time
+ * (from actually sending) is reported alongside for comparison.
+ * - Requests are picked from a weighted mix of endpoints (loadtest.mix): REST text scans, REST file scans (of generated files, which must be readable by
+ * the engine at the same path) and gRPC batch scans.
+ * - Requests sent during the warmup (loadtest.warmup) aren't measured.
+ * - Requests still unanswered once the run is over are errors of their endpoint, with the latency they had reached by then - leaving them out would
+ * hide a stalled engine from the percentiles.
+ * <p>
+ * Latency distributions are also written as HdrHistogram percentile files (target/loadtest/*.hgrm) for plotting.
+ * <p>
+ * Configured by system properties, see the loadtest profile in the pom. Run against a running engine with:
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.rate=500 -Dloadtest.duration=2m
+ * <p>
+ * SLOs (all optional):
+ * - loadtest.slo.[endpoint.]p50 / p90 / p99 / p999 / max - latency percentiles of all requests, or of an endpoint's (e.g. loadtest.slo.text.p99=250ms).
+ * - loadtest.slo.[endpoint.]max-error-rate - failed / measured requests, of all requests or of an endpoint's.
+ * - loadtest.slo.min-throughput - successful requests per second, as a fraction of loadtest.rate.
+ */
+public class LoadTest {
+
+    private static final int EXIT_SLO_MISSED = 1;
+    private static final int EXIT_UNREACHABLE = 2;
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    // Latency SLO property suffix to percentile
+    private static final Map<String, Double> PERCENTILES = Map.of("p50", 50.0, "p90", 90.0, "p99", 99.0, "p999", 99.9, "max", 100.0);
+
+    enum Endpoint {
+        TEXT("text"),
+        FILE("file"),
+        GRPC_BATCH("grpc-batch");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+
+        static Endpoint of(String label) {
+            for (var endpoint : values()) {
+                if (endpoint.label.equals(label)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint '" + label + "' in loadtest.mix");
+        }
+    }
+
+    /**
+     * Latencies (in microseconds) and errors of an endpoint, or of all of them.
+     */
+    private static class Stats {
+        private final Recorder latency = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder serviceTime = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+        private final Histogram totalLatency = new Histogram(SIGNIFICANT_DIGITS);
+        private final Histogram totalServiceTime = new Histogram(SIGNIFICANT_DIGITS);
+        private long totalErrors;
+
+        void record(long latencyNanos, long serviceTimeNanos, boolean success) {
+            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(serviceTimeNanos));
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        /**
+         * Moves everything recorded since the last call to the totals.
+         *
+         * @return the latencies recorded since the last call.
+         */
+        synchronized Histogram drain() {
+            var interval = latency.getIntervalHistogram();
+            totalLatency.add(interval);
+            totalServiceTime.add(serviceTime.getIntervalHistogram());
+            totalErrors += errors.sumThenReset();
+            return interval;
+        }
+    }
+
+    /**
+     * A request sent but not answered yet.
+     */
+    private static class Outstanding {
+        private final Endpoint endpoint;
+        private final long scheduled;
+        private final long sent;
+        private final boolean measured;
+
+        Outstanding(Endpoint endpoint, long scheduled, long sent, boolean measured) {
+            this.endpoint = endpoint;
+            this.scheduled = scheduled;
+            this.sent = sent;
+            this.measured = measured;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Unconfigured logback logs everything (gRPC's netty included) at debug, which costs the generator more than sending requests does
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        var url = property("loadtest.url", "http://localhost:8080").replaceAll("/+$", "");
+        var grpcTarget = property("loadtest.grpc-target", "localhost:9090");
+        var rate = Double.parseDouble(property("loadtest.rate", "200"));
+        var duration = DurationStyle.detectAndParse(property("loadtest.duration", "60s"));
+        var warmup = DurationStyle.detectAndParse(property("loadtest.warmup", "10s"));
+        var timeout = DurationStyle.detectAndParse(property("loadtest.timeout", "30s"));
+        var mix = parseMix(property("loadtest.mix", "text=90,file=2,grpc-batch=8"));
+        var policy = property("loadtest.policy", "");
+        var outputDirectory = Path.of(property("loadtest.output-directory", "target/loadtest"));
+
+        var generator = new CorpusGenerator(CorpusGenerator.Densities.builder()
+                .validIban(Double.parseDouble(property("loadtest.density.valid-iban", "0.02")))
+                .invalidIban(Double.parseDouble(property("loadtest.density.invalid-iban", "0.05")))
+                .validSsn(Double.parseDouble(property("loadtest.density.valid-ssn", "0.02")))
+                .invalidSsn(Double.parseDouble(property("loadtest.density.invalid-ssn", "0.05")))
+                .contextKeyword(Double.parseDouble(property("loadtest.density.context-keyword", "0.05")))
+                .build(), Long.parseLong(property("loadtest.seed", "42")));
+        var documents = generator.documents(Integer.parseInt(property("loadtest.documents", "1000")),
+                Integer.parseInt(property("loadtest.min-text-length", "100")), Integer.parseInt(property("loadtest.max-text-length", "4000")));
+        var files = mix.containsKey(Endpoint.FILE)
+                ? generator.writeFiles(outputDirectory.resolve("corpus"), Integer.parseInt(property("loadtest.files", "20")),
+                DataSize.parse(property("loadtest.file-size", "1MB")).toBytes())
+                : List.<Path>of();
+
+        var mapper = new ObjectMapper();
+        var textBodies = new ArrayList<byte[]>();
+        for (var document : documents) {
+            textBodies.add(mapper.writeValueAsBytes(ScanRequest.builder().text(document.getText()).policy(emptyToNull(policy)).build()));
+        }
+        var fileBodies = new ArrayList<byte[]>();
+        for (var file : files) {
+            fileBodies.add(mapper.writeValueAsBytes(ScanRequest.builder().filePath(file.toAbsolutePath().toString()).policy(emptyToNull(policy)).build()));
+        }
+        var batchSize = Integer.parseInt(property("loadtest.batch-size", "16"));
+        var batches = new ArrayList<ScanBatchRequest>();
+        for (int i = 0; i < documents.size(); i += batchSize) {
+            var batch = ScanBatchRequest.newBuilder();
+            for (var document : documents.subList(i, Math.min(i + batchSize, documents.size()))) {
+                batch.addPayloads(ScanPayload.newBuilder().setData(ByteString.copyFrom(document.getText(), StandardCharsets.UTF_8)).setPolicy(policy));
+            }
+            batches.add(batch.build());
+        }
+
+        var httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+        ManagedChannel channel = mix.containsKey(Endpoint.GRPC_BATCH) ? NettyChannelBuilder.forTarget(grpcTarget).usePlaintext().build() : null;
+        var grpcStub = channel == null ? null : DlpScanServiceGrpc.newFutureStub(channel);
+        var random = new Random(0);
+        RequestSender sender = endpoint -> {
+            switch (endpoint) {
+                case TEXT:
+                    return post(httpClient, URI.create(url + "/api/v1/scan/text"), textBodies.get(random.nextInt(textBodies.size())), timeout);
+                case FILE:
+                    return post(httpClient, URI.create(url + "/api/v1/scan/file"), fileBodies.get(random.nextInt(fileBodies.size())), timeout);
+                default:
+                    return grpcBatch(grpcStub, batches.get(random.nextInt(batches.size())), timeout);
+            }
+        };
+
+        try {
+            for (var endpoint : mix.keySet()) {
+                if (!sender.send(endpoint).get(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    System.err.println("Engine failed a " + endpoint.label + " scan, is it running at " + url + " / " + grpcTarget + "?");
+                    System.exit(EXIT_UNREACHABLE);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Engine can't be reached at " + url + " / " + grpcTarget + ": " + e);
+            System.exit(EXIT_UNREACHABLE);
+        }
+
+        System.out.printf("Sending %.1f requests/s for %s (after %s of warmup), mix %s%n", rate, duration, warmup, mix);
+        var stats = new EnumMap<Endpoint, Stats>(Endpoint.class);
+        mix.keySet().forEach(endpoint -> stats.put(endpoint, new Stats()));
+        var all = new Stats();
+        var maxSendLag = run(sender, mix, rate, warmup, duration, timeout, stats, all);
+        if (channel != null) {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        var misses = report(stats, all, rate, duration, maxSendLag, outputDirectory);
+        if (!misses.isEmpty()) {
+            System.out.println();
+            misses.forEach(miss -> System.out.println("SLO MISSED: " + miss));
+            System.exit(EXIT_SLO_MISSED);
+        }
+        System.out.println("All SLOs met");
+        System.exit(0);
+    }
+
+    /**
+     * @return the longest a request was sent after it was scheduled to, in nanoseconds.
+     */
+    private static long run(RequestSender sender, Map<Endpoint, Integer> mix, double rate, Duration warmup, Duration duration, Duration timeout,
+                            Map<Endpoint, Stats> stats, Stats all) throws InterruptedException {
+        var weights = new ArrayList<Endpoint>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weights.add(endpoint);
+            }
+        });
+        var random = new Random(1);
+        var inFlight = new ConcurrentHashMap<Long, Outstanding>();
+        var reporter = Executors.newSingleThreadScheduledExecutor();
+        var elapsedReports = new AtomicLong();
+        reporter.scheduleAtFixedRate(() -> {
+            var interval = all.drain();
+            stats.values().forEach(Stats::drain);
+            var seconds = elapsedReports.incrementAndGet() * REPORT_INTERVAL.toSeconds();
+            if (interval.getTotalCount() > 0) {
+                System.out.printf("%4ds %8.1f req/s  p50 %8.1f ms  p99 %8.1f ms  max %8.1f ms  in flight %d%n", seconds,
+                        interval.getTotalCount() / (double) REPORT_INTERVAL.toSeconds(), millis(interval.getValueAtPercentile(50)),
+                        millis(interval.getValueAtPercentile(99)), millis(interval.getMaxValue()), inFlight.size());
+            }
+        }, REPORT_INTERVAL.toMillis(), REPORT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+        var intervalNanos = 1e9 / rate;
+        var start = System.nanoTime();
+        var measureStart = start + warmup.toNanos();
+        var end = measureStart + duration.toNanos();
+        long maxSendLag = 0;
+        for (long i = 0; ; i++) {
+            var scheduled = start + (long) (i * intervalNanos);
+            if (scheduled - end >= 0) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            var endpoint = weights.get(random.nextInt(weights.size()));
+            var measured = scheduled - measureStart >= 0;
+            var sent = System.nanoTime();
+            if (measured) {
+                maxSendLag = Math.max(maxSendLag, sent - scheduled);
+            }
+            var id = i;
+            inFlight.put(id, new Outstanding(endpoint, scheduled, sent, measured));
+            sender.send(endpoint).whenComplete((success, error) -> {
+                var now = System.nanoTime();
+                // Recorded by whichever removes it first, this or giving up on it at the end of the run
+                var request = inFlight.remove(id);
+                if (request != null && request.measured) {
+                    var ok = error == null && Boolean.TRUE.equals(success);
+                    stats.get(endpoint).record(now - scheduled, now - sent, ok);
+                    all.record(now - scheduled, now - sent, ok);
+                }
+            });
+        }
+
+        // Requests time out on their own, wait for the stragglers
+        var deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(5);
+        while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        reporter.shutdownNow();
+        reporter.awaitTermination(5, TimeUnit.SECONDS);
+        var givenUpAt = System.nanoTime();
+        int neverCompleted = 0;
+        for (var id : inFlight.keySet()) {
+            var request = inFlight.remove(id);
+            if (request != null) {
+                neverCompleted++;
+                if (request.measured) {
+                    stats.get(request.endpoint).record(givenUpAt - request.scheduled, givenUpAt - request.sent, false);
+                    all.record(givenUpAt - request.scheduled, givenUpAt - request.sent, false);
+                }
+            }
+        }
+        all.drain();
+        stats.values().forEach(Stats::drain);
+        if (neverCompleted > 0) {
+            System.out.println(neverCompleted + " requests never completed, counted as errors");
+        }
+        return maxSendLag;
+    }
+
+    /**
+     * Prints the results, writes the latency distributions and checks the SLOs.
+     *
+     * @return the missed SLOs.
+     */
+    private static List<String> report(Map<Endpoint, Stats> stats, Stats all, double rate, Duration duration, long maxSendLag, Path outputDirectory)
+            throws IOException {
+        Files.createDirectories(outputDirectory);
+        System.out.println();
+        System.out.printf("%-12s %9s %7s %10s %9s %9s %9s %9s %9s %12s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms", "svc p99 ms");
+        var misses = new ArrayList<String>();
+        for (var entry : stats.entrySet()) {
+            printRow(entry.getKey().label, entry.getValue(), duration);
+            checkLatencySlos("loadtest.slo." + entry.getKey().label + ".", entry.getKey().label, entry.getValue().totalLatency, misses);
+            checkErrorRateSlo("loadtest.slo." + entry.getKey().label + ".", entry.getKey().label, entry.getValue(), misses);
+            writeDistribution(outputDirectory.resolve(entry.getKey().label + ".hgrm"), entry.getValue().totalLatency);
+        }
+        printRow("all", all, duration);
+        writeDistribution(outputDirectory.resolve("all.hgrm"), all.totalLatency);
+        System.out.printf("Max send lag %.1f ms (the generator itself falling behind schedule, included in latencies)%n", millis(maxSendLag / 1000));
+        System.out.println("Latency distributions written to " + outputDirectory);
+
+        checkLatencySlos("loadtest.slo.", "all", all.totalLatency, misses);
+        checkErrorRateSlo("loadtest.slo.", "all", all, misses);
+        var requests = all.totalLatency.getTotalCount();
+        var throughput = (requests - all.totalErrors) / (duration.toNanos() / 1e9);
+        var minThroughput = property("loadtest.slo.min-throughput", "");
+        if (StringUtils.hasText(minThroughput) && throughput < rate * Double.parseDouble(minThroughput)) {
+            misses.add(String.format("throughput %.1f req/s < %s of the %.1f req/s sent", throughput, minThroughput, rate));
+        }
+        return misses;
+    }
+
+    private static void printRow(String label, Stats stats, Duration duration) {
+        var latency = stats.totalLatency;
+        System.out.printf("%-12s %9d %7d %10.1f %9.1f %9.1f %9.1f %9.1f %9.1f %12.1f%n", label, latency.getTotalCount(), stats.totalErrors,
+                latency.getTotalCount() / (duration.toNanos() / 1e9), millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()),
+                millis(stats.totalServiceTime.getValueAtPercentile(99)));
+    }
+
+    /**
+     * Checks the latency SLOs configured by prefix + p50 / p90 / p99 / p999 / max (e.g. loadtest.slo.p99=250ms, loadtest.slo.file.max=5s).
+     */
+    private static void checkLatencySlos(String prefix, String label, Histogram latency, List<String> misses) {
+        PERCENTILES.forEach((name, percentile) -> {
+            var slo = property(prefix + name, "");
+            if (StringUtils.hasText(slo)) {
+                var actualMicros = latency.getValueAtPercentile(percentile);
+                if (actualMicros > TimeUnit.NANOSECONDS.toMicros(DurationStyle.detectAndParse(slo).toNanos())) {
+                    misses.add(String.format("%s %s latency %.1f ms > %s", label, name, millis(actualMicros), slo));
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks the error rate SLO configured by prefix + max-error-rate (e.g. loadtest.slo.max-error-rate=0.001, loadtest.slo.file.max-error-rate=0.01).
+     */
+    private static void checkErrorRateSlo(String prefix, String label, Stats stats, List<String> misses) {
+        var maxErrorRate = property(prefix + "max-error-rate", "");
+        if (StringUtils.hasText(maxErrorRate)) {
+            var requests = stats.totalLatency.getTotalCount();
+            var errorRate = requests == 0 ? 1 : stats.totalErrors / (double) requests;
+            if (errorRate > Double.parseDouble(maxErrorRate)) {
+                misses.add(String.format("%s error rate %.4f > %s", label, errorRate, maxErrorRate));
+            }
+        }
+    }
+
+    private static void writeDistribution(Path file, Histogram latency) throws IOException {
+        try (var out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            // In milliseconds
+            latency.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestSender {
+        /**
+         * @return completes with whether the scan succeeded, never blocks.
+         */
+        CompletableFuture<Boolean> send(Endpoint endpoint);
+    }
+
+    private static CompletableFuture<Boolean> post(HttpClient client, URI uri, byte[] body, Duration timeout) {
+        var request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> response.statusCode() == 200);
+    }
+
+    private static CompletableFuture<Boolean> grpcBatch(DlpScanServiceGrpc.DlpScanServiceFutureStub stub, ScanBatchRequest batch, Duration timeout) {
+        var result = new CompletableFuture<Boolean>();
+        Futures.addCallback(stub.withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS).scanBatch(batch), new FutureCallback<ScanBatchReply>() {
+            @Override
+            public void onSuccess(ScanBatchReply reply) {
+                result.complete(reply.getRepliesCount() == batch.getPayloadsCount());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * @param mix e.g. "text=90,file=2,grpc-batch=8"
+     */
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Endpoint, Integer>(Endpoint.class);
+        for (var entry : mix.split(",")) {
+            var parts = entry.trim().split("=");
+            var weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Endpoint.of(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no endpoints");
+        }
+        return weights;
+    }
+
+    private static String property(String name, String defaultValue) {
+        var value = System.getProperty(name);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
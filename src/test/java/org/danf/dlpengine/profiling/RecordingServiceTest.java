@@ -0,0 +1,104 @@
+package org.danf.dlpengine.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.danf.dlpengine.model.RecordingOptions;
+import org.danf.dlpengine.scanner.IbanScanner;
+import org.danf.dlpengine.scanner.ScannerScanEvent;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RecordingServiceTest {
+
+    private static final String SSN = "123-45-6789";
+    private static final String IBAN = "DE44 5001 0517 5407 3249 31";
+    private static final String INPUT = "Social Security Number: " + SSN + ", pay to " + IBAN + " not to DE45 5001 0517 5407 3249 31 (bad checksum)";
+
+    private final RecordingService service = new RecordingService(Duration.ofMinutes(10), DataSize.ofMegabytes(50), Duration.ofMillis(1));
+
+    @AfterEach
+    public void clean() {
+        service.close();
+    }
+
+    @Test
+    public void testRecordsScannerScanEventsWithoutContent() throws Exception {
+        service.start(RecordingOptions.builder().threshold(Duration.ZERO).build());
+        new SocialSecurityNumberScanner().scan(INPUT);
+        new IbanScanner().scan(INPUT);
+
+        var file = service.dump();
+        try {
+            var events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(ScannerScanEvent.NAME))
+                    .collect(Collectors.toMap(event -> event.getString("scanner"), event -> event));
+            var ssnEvent = events.get(new SocialSecurityNumberScanner().scannerName());
+            assertThat(ssnEvent).isNotNull();
+            assertThat(ssnEvent.getString("dataType")).isEqualTo("SSN");
+            assertThat(ssnEvent.getInt("inputLength")).isEqualTo(INPUT.length());
+            assertThat(ssnEvent.getInt("candidateMatches")).isEqualTo(1);
+            assertThat(ssnEvent.getInt("validMatches")).isEqualTo(1);
+            assertThat(ssnEvent.getInt("contextRank")).isPositive();
+            assertThat(ssnEvent.getDuration("matchDuration")).isPositive();
+            assertThat(ssnEvent.getLong("allocated")).isNotNegative();
+            var ibanEvent = events.get(new IbanScanner().scannerName());
+            assertThat(ibanEvent.getInt("candidateMatches")).isEqualTo(2);
+            assertThat(ibanEvent.getInt("validMatches")).isEqualTo(1);
+
+            for (RecordedEvent event : events.values()) {
+                assertThat(event.toString()).doesNotContain(SSN).doesNotContain(IBAN);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFastScansAreBelowThreshold() throws Exception {
+        service.start(RecordingOptions.builder().threshold(Duration.ofMinutes(1)).build());
+        new SocialSecurityNumberScanner().scan(INPUT);
+
+        var file = service.dump();
+        try {
+            assertThat(RecordingFile.readAllEvents(file)).noneMatch(event -> event.getEventType().getName().equals(ScannerScanEvent.NAME));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRecordingIsBounded() {
+        var status = service.start(RecordingOptions.builder().maxAge(Duration.ofDays(1)).maxSize(1024L).build());
+        assertThat(status.getState()).isEqualTo("RUNNING");
+        assertThat(status.getMaxAge()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(status.getMaxSize()).isEqualTo(1024L);
+        assertThat(status.getThreshold()).isEqualTo(Duration.ofMillis(1));
+
+        assertThatThrownBy(() -> service.start(new RecordingOptions()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("already running");
+
+        assertThat(service.stop().getState()).isEqualTo("STOPPED");
+        assertThat(service.start(new RecordingOptions()).getMaxSize()).isEqualTo(DataSize.ofMegabytes(50).toBytes());
+    }
+
+    @Test
+    public void testNoRecording() {
+        assertThatThrownBy(service::dump)
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("No recording.");
+        assertThatThrownBy(() -> service.start(RecordingOptions.builder().maxAge(Duration.ZERO).build()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("maxAge must be positive.");
+    }
+}
@@ -0,0 +1,57 @@
+package org.danf.dlpengine.scanner;
+
+import org.danf.dlpengine.edm.FingerprintIndex;
+import org.danf.dlpengine.edm.FingerprintIndexBuilder;
+import org.danf.dlpengine.edm.Fingerprinter;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExactDataMatchScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExactDataMatchScanner ssnScanner;
+    private ExactDataMatchScanner ibanScanner;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        var fingerprinter = new Fingerprinter("pepper");
+        var values = Files.writeString(tempDir.resolve("values.csv"), "SSN,123-45-6789\nIBAN,DE44 5001 0517 5407 3249 31\n");
+        var indexFile = tempDir.resolve("index.edm");
+        FingerprintIndexBuilder.build(values, indexFile, fingerprinter, FingerprintIndexBuilder.DEFAULT_BLOOM_BITS_PER_ENTRY);
+        var index = FingerprintIndex.open(indexFile, fingerprinter, false);
+        ssnScanner = ExactDataMatchScanner.knownSocialSecurityNumbers(index);
+        ibanScanner = ExactDataMatchScanner.knownIbans(index);
+    }
+
+    @Test
+    public void testOnlyKnownSsnsMatch() {
+        var result = ssnScanner.scan("SSN 123 45 6789, also 123456789 but not 987-65-4321");
+        assertThat(result.getType()).isEqualTo(SensitiveDataType.KNOWN_SSN);
+        assertThat(result.getCount()).isEqualTo(2);
+        assertThat(result.getContextRank()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOnlyKnownIbansMatch() {
+        // Both are valid IBANs, only one of them is known
+        var result = ibanScanner.scan("pay to de44500105175407324931 or GB82 WEST 1234 5698 7654 32");
+        assertThat(result.getType()).isEqualTo(SensitiveDataType.KNOWN_IBAN);
+        assertThat(result.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNothingKnown() {
+        assertThat(ssnScanner.scan("SSN 987-65-4321").getCount()).isZero();
+        assertThat(ibanScanner.scan("GB82 WEST 1234 5698 7654 32").getCount()).isZero();
+    }
+}
@@ -1,5 +1,6 @@
 package org.danf.dlpengine.scanner;
 
+import nl.garvelink.iban.Modulo97;
 import org.danf.dlpengine.common.TestUtils;
 import org.danf.dlpengine.model.SensitiveDataType;
 import org.junit.jupiter.api.Test;
@@ -9,6 +10,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.danf.dlpengine.scanner.IbanScanner.IBAN_PATTERN;
 
 public class IbanScannerTest {
@@ -67,4 +69,26 @@ public class IbanScannerTest {
     public void testIbanRegexNegatives(String input) {
         assertThat(IBAN_PATTERN.matcher(input).matches()).isFalse();
     }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "DE44 5001 0517 5407 3249 31",
+            "DE45 5001 0517 5407 3249 31",
+            "de44 5001 0517 5407 3249 31",
+            "GB29 NWBK 6016 1331 9268 19",
+            "GB29NWBK60161331926819",
+            "GB82 WEST 1234 5698 7654 32",
+            "SA0380000000608010167519",
+            "UE44 5001 0517 5407 3249 0517 0517 0517 313"
+    })
+    public void testCheckDigitsSameAsModulo97(String input) {
+        assertThat(IbanScanner.verifyCheckDigits(input)).isEqualTo(Modulo97.verifyCheckDigits(input));
+    }
+
+    @Test
+    public void testCheckDigitsOfInvalidCharacters() {
+        assertThatThrownBy(() -> IbanScanner.verifyCheckDigits("DE44 5001_0517 5407 3249 31"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid character '_'.");
+    }
 }
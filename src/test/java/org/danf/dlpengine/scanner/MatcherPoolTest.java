@@ -0,0 +1,65 @@
+package org.danf.dlpengine.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MatcherPoolTest {
+
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    @Test
+    public void testReleasedMatcherIsReused() {
+        var matcher = MatcherPool.acquire(DIGITS, "abc 123");
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.group()).isEqualTo("123");
+        MatcherPool.release(matcher);
+        // Doesn't hold on to the input once released
+        assertThat(matcher.find()).isFalse();
+
+        var reused = MatcherPool.acquire(DIGITS, "456");
+        assertThat(reused).isSameAs(matcher);
+        assertThat(reused.find()).isTrue();
+        assertThat(reused.group()).isEqualTo("456");
+        MatcherPool.release(reused);
+    }
+
+    @Test
+    public void testNestedAcquireGetsAnotherMatcher() {
+        var outer = MatcherPool.acquire(DIGITS, "1 2 3");
+        int count = 0;
+        while (outer.find()) {
+            var inner = MatcherPool.acquire(DIGITS, "42");
+            assertThat(inner).isNotSameAs(outer);
+            assertThat(inner.find()).isTrue();
+            MatcherPool.release(inner);
+            count++;
+        }
+        MatcherPool.release(outer);
+        assertThat(count).isEqualTo(3);
+    }
+
+    @Test
+    public void testScannersOnManyThreads() throws Exception {
+        var scanner = new SocialSecurityNumberScanner();
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 1_000; i++) {
+                var ssns = i % 5;
+                futures.add(executor.submit(() -> scanner.scan("SSN 123-45-6789 ".repeat(ssns) + "nothing else").getCount()));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(futures.get(i).get(10, TimeUnit.SECONDS)).isEqualTo(i % 5);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.danf.dlpengine.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileChunkReaderTest {
+
+    private static final String LINES = "first line\nsecond line\n\nfourth, a somewhat longer line\nfifth\nlast line without a new line";
+    private static final String MULTI_BYTE = " ééé€€€ and 𝄞𝄞";
+    private static final int OVERLAP = 4;
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8, 16, 64, 4096})
+    public void testChunksAddUpToWholeFile(int chunkSize) throws IOException {
+        var text = LINES + MULTI_BYTE;
+        var file = write(text);
+        var chunks = readAll(file, 0, Long.MAX_VALUE, chunkSize);
+        assertThat(String.join("", owned(chunks))).isEqualTo(text);
+    }
+
+    @Test
+    public void testChunksEndOnLineBreaks() throws IOException {
+        var file = write(LINES);
+        var chunks = owned(readAll(file, 0, Long.MAX_VALUE, 40));
+        // All but the last chunk end on a line break since no line is longer than a chunk
+        chunks.subList(0, chunks.size() - 1).forEach(chunk -> assertThat(chunk).endsWith("\n"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 7, 10, 13, 32})
+    public void testAdjacentRangesCoverEveryCharOnce(int rangeSize) throws IOException {
+        var text = LINES + MULTI_BYTE;
+        var file = write(text);
+        var content = new StringBuilder();
+        long bytesRead = 0;
+        for (long start = 0; start < Files.size(file); start += rangeSize) {
+            try (var reader = new FileChunkReader(file, start, start + rangeSize, 8, OVERLAP)) {
+                FileChunkReader.Chunk chunk;
+                while ((chunk = reader.nextChunk()) != null) {
+                    content.append(chunk.getText(), chunk.getStart(), chunk.getEnd());
+                }
+                bytesRead += reader.getBytesRead();
+            }
+        }
+        assertThat(content.toString()).isEqualTo(text);
+        assertThat(bytesRead).isEqualTo(Files.size(file));
+    }
+
+    @Test
+    public void testChunksComeWithTheTextAroundThem() throws IOException {
+        var file = write(LINES);
+        // Starts in "first line", ends in "second line"
+        var chunks = readAll(file, 3, 14, 64);
+        assertThat(chunks).hasSize(1);
+        var chunk = chunks.get(0);
+        assertThat(chunk.getText()).isEqualTo(LINES.substring(0, 14 + OVERLAP));
+        assertThat(chunk.getText().substring(chunk.getStart(), chunk.getEnd())).isEqualTo(LINES.substring(3, 14));
+    }
+
+    @Test
+    public void testRangeReadsNoMoreThanItsBytesAndOverlap() throws IOException {
+        // A single line, no line break to read on to
+        var text = "x".repeat(10_000);
+        var file = write(text);
+        try (var reader = new FileChunkReader(file, 4096, 8192, 1024, OVERLAP)) {
+            int length = 0;
+            FileChunkReader.Chunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                assertThat(chunk.getText()).hasSizeLessThanOrEqualTo(1024 + 2 * OVERLAP);
+                length += chunk.getEnd() - chunk.getStart();
+            }
+            assertThat(length).isEqualTo(4096);
+            assertThat(reader.getBytesRead()).isEqualTo(4096);
+        }
+    }
+
+    @Test
+    public void testLongLineIsCutOnCharacterBoundary() throws IOException {
+        var text = "ééééééééé";
+        var file = write(text);
+        var chunks = owned(readAll(file, 0, Long.MAX_VALUE, 5));
+        assertThat(String.join("", chunks)).isEqualTo(text);
+        chunks.forEach(chunk -> assertThat(chunk).doesNotContain("�"));
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(tempDir.resolve("input.txt"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<FileChunkReader.Chunk> readAll(Path file, long start, long end, int chunkSize) throws IOException {
+        var chunks = new ArrayList<FileChunkReader.Chunk>();
+        try (var reader = new FileChunkReader(file, start, end, chunkSize, OVERLAP)) {
+            FileChunkReader.Chunk chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                chunks.add(chunk);
+            }
+        }
+        return chunks;
+    }
+
+    private static List<String> owned(List<FileChunkReader.Chunk> chunks) {
+        var owned = new ArrayList<String>();
+        chunks.forEach(chunk -> owned.add(chunk.getText().substring(chunk.getStart(), chunk.getEnd())));
+        return owned;
+    }
+}
@@ -0,0 +1,163 @@
+package org.danf.dlpengine.service;
+
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.danf.dlpengine.scanner.IbanScanner;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
+import org.danf.dlpengine.sketch.ValueStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SampledScanServiceTest {
+
+    private static final int LINES = 20_000;
+    // One SSN every this many lines
+    private static final int SSN_EVERY = 50;
+    private static final int SLOT_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    private SensitiveDataScanService scanService;
+    private Path largeFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        scanService = new SensitiveDataScanService(List.of(new IbanScanner(), new SocialSecurityNumberScanner()));
+        var content = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            content.append(i % SSN_EVERY == 0 ? "SSN 123-45-6789" : "nothing to see on line " + i).append('\n');
+        }
+        largeFile = Files.writeString(tempDir.resolve("large.txt"), content, StandardCharsets.UTF_8);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SampledScanService.Strategy.class)
+    public void testEstimateBoundsActualCount(SampledScanService.Strategy strategy) throws IOException {
+        var service = new SampledScanService(scanService, strategy, SLOT_SIZE, 16 * SLOT_SIZE, Long.MAX_VALUE, new Random(42));
+        var results = service.scanFile(largeFile.toString());
+
+        assertThat(results.getSampled()).isTrue();
+        assertThat(results.getTotalBytes()).isEqualTo(Files.size(largeFile));
+        assertThat(results.getBytesScanned()).isLessThan(results.getTotalBytes());
+        assertThat(results.getResults()).hasSize(1);
+
+        var ssn = results.getResults().get(0);
+        long actualCount = LINES / SSN_EVERY;
+        assertThat(ssn.getType()).isEqualTo(SensitiveDataType.SSN);
+        assertThat(ssn.getCount()).isPositive().isLessThan((int) actualCount);
+        assertThat(ssn.getEstimatedCountLower()).isLessThanOrEqualTo(actualCount);
+        assertThat(ssn.getEstimatedCountUpper()).isGreaterThanOrEqualTo(actualCount);
+        assertThat(ssn.getEstimatedCount()).isBetween(ssn.getEstimatedCountLower(), ssn.getEstimatedCountUpper());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SampledScanService.Strategy.class)
+    public void testFileWithNoLineBreaks(SampledScanService.Strategy strategy) throws IOException {
+        // Minified data: a single line with an SSN about every 1000 bytes, plenty of them across slot boundaries
+        int ssns = 400;
+        var content = new StringBuilder();
+        for (int i = 0; i < ssns; i++) {
+            content.append("{\"ssn\":\"123-45-6789\",\"padding\":\"").append("x".repeat(960 + i % 10)).append("\"},");
+        }
+        var oneLine = Files.writeString(tempDir.resolve("one-line.json"), content, StandardCharsets.UTF_8);
+        var service = new SampledScanService(scanService, strategy, SLOT_SIZE, 16 * SLOT_SIZE, Long.MAX_VALUE, new Random(42));
+        var results = service.scanFile(oneLine.toString());
+
+        assertThat(results.getSampled()).isTrue();
+        assertThat(results.getBytesScanned()).isLessThanOrEqualTo(16 * SLOT_SIZE);
+        assertThat(results.getResults()).hasSize(1);
+        var ssn = results.getResults().get(0);
+        // Every slot holds about 4 SSNs
+        assertThat(ssn.getCount()).isBetween(16 * 3, 16 * 5);
+        assertThat(ssn.getEstimatedCountLower()).isLessThanOrEqualTo(ssns);
+        assertThat(ssn.getEstimatedCountUpper()).isGreaterThanOrEqualTo(ssns);
+    }
+
+    @Test
+    public void testEarlyExitPolicyEstimateBoundsActualCount() {
+        var policy = ScanPolicy.compile("any-sensitive-data", List.of(new IbanScanner(), new SocialSecurityNumberScanner()), Map.of(), true);
+        var service = new SampledScanService(scanService, SampledScanService.Strategy.STRATIFIED, SLOT_SIZE, 16 * SLOT_SIZE, Long.MAX_VALUE,
+                new Random(42));
+        var results = service.scanFile(largeFile.toString(), policy);
+
+        assertThat(results.getSampled()).isTrue();
+        assertThat(results.getResults()).hasSize(1);
+        var ssn = results.getResults().get(0);
+        long actualCount = LINES / SSN_EVERY;
+        // Each sampled slot holds several SSNs, all of which must be counted
+        assertThat(ssn.getCount()).isGreaterThan(16);
+        assertThat(ssn.getEstimatedCountLower()).isLessThanOrEqualTo(actualCount);
+        assertThat(ssn.getEstimatedCountUpper()).isGreaterThanOrEqualTo(actualCount);
+    }
+
+    @Test
+    public void testSamplePolicyTracksNoValueStatistics() {
+        var policy = ScanPolicy.compile("distinct-values", List.of(new SocialSecurityNumberScanner()), Map.of(), false,
+                new ValueStatistics("pepper", 14, 100, 10));
+        var service = new SampledScanService(scanService, SampledScanService.Strategy.STRATIFIED, SLOT_SIZE, 16 * SLOT_SIZE, Long.MAX_VALUE,
+                new Random(42));
+        var results = service.scanFile(largeFile.toString(), policy);
+
+        assertThat(results.getSampled()).isTrue();
+        assertThat(results.getResults()).hasSize(1);
+        assertThat(results.getResults().get(0).getDistinctCount()).isNull();
+        assertThat(policy.forSampling().trackedValueStatistics()).isNull();
+    }
+
+    @Test
+    public void testThresholdSwitchesToFullScan() {
+        var service = new SampledScanService(scanService, SampledScanService.Strategy.STRATIFIED, SLOT_SIZE, 16 * SLOT_SIZE, 1, new Random(42));
+        var results = service.scanFile(largeFile.toString());
+
+        assertThat(results.getSampled()).isFalse();
+        assertThat(results.getBytesScanned()).isEqualTo(results.getTotalBytes());
+        assertThat(results.getResults()).hasSize(1);
+        assertThat(results.getResults().get(0).getCount()).isEqualTo(LINES / SSN_EVERY);
+        assertThat(results.getResults().get(0).getEstimatedCount()).isNull();
+    }
+
+    @Test
+    public void testFileWithinBudgetIsScannedInFull() throws IOException {
+        var service = new SampledScanService(scanService, SampledScanService.Strategy.RANDOM, SLOT_SIZE, Files.size(largeFile) * 2, Long.MAX_VALUE, new Random(42));
+        var results = service.scanFile(largeFile.toString());
+
+        assertThat(results.getSampled()).isFalse();
+        assertThat(results.getResults().get(0).getCount()).isEqualTo(LINES / SSN_EVERY);
+    }
+
+    @Test
+    public void testBudgetOfLessThanTwoSlotsIsRejected() {
+        assertThatThrownBy(() -> new SampledScanService(scanService, SampledScanService.Strategy.RANDOM, SLOT_SIZE, 2 * SLOT_SIZE - 1, 0, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("engine.sampling.byte-budget");
+    }
+
+    @Test
+    public void testSlotSelection() {
+        var service = new SampledScanService(scanService, SampledScanService.Strategy.RANDOM, SLOT_SIZE, 2 * SLOT_SIZE, 0, new Random(7));
+        var random = service.randomSlots(1000, 100);
+        assertThat(random).hasSize(100).doesNotHaveDuplicates().isSorted();
+        assertThat(random[0]).isGreaterThanOrEqualTo(0);
+        assertThat(random[99]).isLessThan(1000);
+        var stratified = service.stratifiedSlots(1000, 100);
+        assertThat(stratified).hasSize(100).isSorted();
+        for (int i = 0; i < stratified.length; i++) {
+            // one slot out of every 10
+            assertThat(stratified[i] / 10).isEqualTo(i);
+        }
+    }
+}
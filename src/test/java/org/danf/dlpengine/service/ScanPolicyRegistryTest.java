@@ -0,0 +1,117 @@
+package org.danf.dlpengine.service;
+
+import org.danf.dlpengine.config.PolicyProperties;
+import org.danf.dlpengine.model.ScanResult;
+import org.danf.dlpengine.model.SensitiveDataType;
+import org.danf.dlpengine.scanner.IbanScanner;
+import org.danf.dlpengine.scanner.SensitiveDataScanner;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class ScanPolicyRegistryTest {
+
+    private static final String SSN_AND_IBAN = "SSN 123-45-6789 and 987 65 4321, pay to DE44 5001 0517 5407 3249 31";
+
+    private SensitiveDataScanner ibanScanner;
+    private SensitiveDataScanner ssnScanner;
+    private SensitiveDataScanService service;
+    private ScanPolicyRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        ibanScanner = spy(new IbanScanner());
+        ssnScanner = spy(new SocialSecurityNumberScanner());
+        var scanners = List.of(ibanScanner, ssnScanner);
+        service = new SensitiveDataScanService(scanners);
+
+        var properties = new PolicyProperties();
+        properties.getPolicies().put("ssn-only", profile(List.of(SensitiveDataType.SSN), Map.of(), false));
+        properties.getPolicies().put("ssn-in-context", profile(List.of(SensitiveDataType.SSN), Map.of(SensitiveDataType.SSN, 2), false));
+        properties.getPolicies().put("any", profile(List.of(SensitiveDataType.IBAN, SensitiveDataType.SSN), Map.of(), true));
+        registry = new ScanPolicyRegistry(properties, scanners);
+    }
+
+    @Test
+    public void testDefaultPolicyRunsAllScanners() {
+        var results = service.scan(SSN_AND_IBAN, registry.getPolicy(null)).getResults();
+        assertThat(results).extracting(ScanResult::getType).containsExactly(SensitiveDataType.IBAN, SensitiveDataType.SSN);
+        assertThat(registry.getPolicy("")).isSameAs(registry.getPolicy(null));
+    }
+
+    @Test
+    public void testPolicyRunsOnlyItsScanners() {
+        var results = service.scan(SSN_AND_IBAN, registry.getPolicy("ssn-only")).getResults();
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getType()).isEqualTo(SensitiveDataType.SSN);
+        assertThat(results.get(0).getCount()).isEqualTo(2);
+        verify(ibanScanner, never()).scan(anyString());
+    }
+
+    @Test
+    public void testContextRankThreshold() {
+        var policy = registry.getPolicy("ssn-in-context");
+        assertThat(service.scan(SSN_AND_IBAN, policy).getResults()).isEmpty();
+        assertThat(service.scan("SSN 123-45-6789, SSN# 987 65 4321", policy).getResults()).hasSize(1);
+    }
+
+    @Test
+    public void testEarlyExit() {
+        var results = service.scan(SSN_AND_IBAN, registry.getPolicy("any")).getResults();
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getType()).isEqualTo(SensitiveDataType.IBAN);
+        assertThat(results.get(0).getCount()).isEqualTo(1);
+        verify(ssnScanner, never()).scanForFirstMatch(anyString());
+    }
+
+    @Test
+    public void testCleanInputSkipsScanners() {
+        var policy = registry.getPolicy("ssn-only");
+        assertThat(policy.mayMatch("nothing sensitive in here, SSN 123")).isFalse();
+        assertThat(service.scan("nothing sensitive in here, SSN 123", policy).getResults()).isEmpty();
+        verify(ssnScanner, never()).scan(anyString());
+    }
+
+    @Test
+    public void testCandidatePatternMatchesWheneverAnyScannerDoes() {
+        var policy = registry.getPolicy(null);
+        assertThat(policy.mayMatch("de44 5001 0517 5407 3249 31")).isTrue();
+        assertThat(policy.mayMatch("123456789")).isTrue();
+        assertThat(policy.mayMatch("I am rubber, you are glue.")).isFalse();
+    }
+
+    @Test
+    public void testUnknownPolicy() {
+        assertThatThrownBy(() -> registry.getPolicy("nope"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Unknown policy 'nope'.");
+    }
+
+    @Test
+    public void testPolicyWithUnavailableDetector() {
+        var properties = new PolicyProperties();
+        properties.getPolicies().put("iban", profile(List.of(SensitiveDataType.IBAN), Map.of(), false));
+        assertThatThrownBy(() -> new ScanPolicyRegistry(properties, List.of(ssnScanner)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("IBAN");
+    }
+
+    private static PolicyProperties.Profile profile(List<SensitiveDataType> detectors, Map<SensitiveDataType, Integer> thresholds, boolean earlyExit) {
+        var profile = new PolicyProperties.Profile();
+        profile.setDetectors(detectors);
+        profile.getContextRankThresholds().putAll(thresholds);
+        profile.setEarlyExit(earlyExit);
+        return profile;
+    }
+}
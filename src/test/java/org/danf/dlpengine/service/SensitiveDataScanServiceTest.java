@@ -2,24 +2,31 @@ package org.danf.dlpengine.service;
 
 
 import org.danf.dlpengine.scanner.SensitiveDataScanner;
+import org.danf.dlpengine.scanner.SocialSecurityNumberScanner;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.danf.dlpengine.common.TestUtils.EMPTY_SCAN_RESULT;
 import static org.danf.dlpengine.common.TestUtils.ONE_SCAN_RESULT;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,13 +70,26 @@ public class SensitiveDataScanServiceTest {
 
     @Test
     public void testExistingFileScan() throws URISyntaxException {
-        when(mockScanner.scan(anyString())).thenReturn(EMPTY_SCAN_RESULT);
+        when(mockScanner.scan(anyString(), anyInt(), anyInt(), isNull())).thenReturn(EMPTY_SCAN_RESULT);
         var existingFile = new File(getClass().getResource("/text_with_iban.txt").toURI());
         //Sanity
         assertThat(existingFile).exists();
         var actualScanResult = service.scanFile(existingFile.getAbsolutePath());
         assertThat(actualScanResult.getResults()).hasSize(0);
-        verify(mockScanner, times(1)).scan(anyString());
+        verify(mockScanner, times(1)).scan(anyString(), anyInt(), anyInt(), isNull());
+    }
+
+    @Test
+    public void testLinesLongerThanChunkScan(@TempDir Path tempDir) throws IOException {
+        var realService = new SensitiveDataScanService(List.of(new SocialSecurityNumberScanner()));
+        // A single line of several chunks, with SSNs and context keywords across every cut
+        var field = "\"SSN\":\"123-45-6789\",";
+        var repetitions = 3 * SensitiveDataScanService.DEFAULT_FILE_CHUNK_SIZE / field.length();
+        var file = Files.writeString(tempDir.resolve("one-line.json"), field.repeat(repetitions));
+        var results = realService.scanFile(file.toString()).getResults();
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getCount()).isEqualTo(repetitions);
+        assertThat(results.get(0).getContextRank()).isEqualTo(repetitions);
     }
 
     @Test()
@@ -0,0 +1,166 @@
+package org.danf.dlpengine.service;
+
+import org.danf.dlpengine.DlpEngineApplication;
+import org.danf.dlpengine.model.ScanResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs sharded scans against real engine instances on localhost.
+ */
+public class ShardedScanServiceTest {
+
+    private static final int LINES = 10_000;
+    private static final long RANGE_SIZE = 16 * 1024;
+    // Nothing listens on port 1
+    private static final String DEAD_PEER = "http://localhost:1";
+
+    @TempDir
+    static Path tempDir;
+
+    private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+    private static final List<String> peers = new ArrayList<>();
+    private static Path file;
+
+    private ShardedScanService service;
+
+    @BeforeAll
+    public static void startInstances() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            var instance = new SpringApplicationBuilder(DlpEngineApplication.class).run(
+                    "--server.port=0",
+                    "--engine.grpc.enabled=false",
+                    "--engine.swagger.enabled=false",
+                    "--engine.distinct-values.salt=pepper",
+                    "--engine.jobs.store-directory=" + tempDir.resolve("jobs-" + i));
+            instances.add(instance);
+            peers.add("http://localhost:" + ((ServletWebServerApplicationContext) instance).getWebServer().getPort());
+        }
+
+        var content = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            if (i % 7 == 0) {
+                content.append("SSN 123-45-6789 on line ").append(i);
+            } else if (i % 11 == 0) {
+                // Context keywords with no match on the same line
+                content.append("Social Security");
+            } else if (i % 13 == 0) {
+                content.append("pay to DE44 5001 0517 5407 3249 31");
+            } else {
+                content.append("nothing to see on line ").append(i);
+            }
+            content.append('\n');
+        }
+        file = Files.writeString(tempDir.resolve("large.txt"), content, StandardCharsets.UTF_8);
+    }
+
+    @AfterAll
+    public static void stopInstances() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @AfterEach
+    public void clean() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testShardedScanMatchesLocalScan() {
+        service = newService(peers);
+        var policyRegistry = instances.get(0).getBean(ScanPolicyRegistry.class);
+        var scanService = instances.get(0).getBean(SensitiveDataScanService.class);
+        for (var policyName : List.of("", "ssn-in-context", "iban-only", "distinct-values")) {
+            var policy = policyRegistry.getPolicy(policyName);
+            var expected = scanService.scanFile(file.toString(), policy);
+            var actual = service.scanFile(file.toString(), policy);
+            assertThat(sorted(actual.getResults())).as(policyName).isEqualTo(sorted(expected.getResults()));
+            assertThat(actual.getErrors()).isEmpty();
+        }
+    }
+
+    @Test
+    public void testFileWithNoLineBreaks() throws IOException {
+        // Minified data: a single line, with matches and context keywords across range boundaries
+        var record = "{\"SSN\":\"123-45-6789\",\"iban\":\"DE44 5001 0517 5407 3249 31\",\"note\":\"nothing to see\"},";
+        int records = (int) (8 * RANGE_SIZE / record.length());
+        var oneLine = Files.writeString(tempDir.resolve("one-line.json"), record.repeat(records), StandardCharsets.UTF_8);
+        service = newService(peers);
+        var scanService = instances.get(0).getBean(SensitiveDataScanService.class);
+        var policy = instances.get(0).getBean(ScanPolicyRegistry.class).getPolicy(null);
+
+        var results = sorted(service.scanFile(oneLine.toString(), policy).getResults());
+        assertThat(results).isEqualTo(sorted(scanService.scanFile(oneLine.toString(), policy).getResults()));
+        assertThat(results).extracting(ScanResult::getCount).containsOnly(records);
+        // Every range does its share, not just the first one
+        for (long start = 0; start < Files.size(oneLine); start += RANGE_SIZE) {
+            var range = scanService.scanRange(oneLine.toString(), policy, start, start + RANGE_SIZE);
+            assertThat(range.getResults()).extracting(ScanResult::getCount).allSatisfy(count -> assertThat(count).isPositive());
+        }
+    }
+
+    @Test
+    public void testDistinctValuesAcrossRanges() {
+        service = newService(peers);
+        var policy = instances.get(0).getBean(ScanPolicyRegistry.class).getPolicy("distinct-values");
+        var results = sorted(service.scanFile(file.toString(), policy).getResults());
+        // The same SSN and IBAN repeated on lines spread over many ranges
+        assertThat(results).extracting(ScanResult::getDistinctCount).containsOnly(1L);
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.getTopValues()).hasSize(1);
+            assertThat(result.getTopValues().get(0).getCount()).isEqualTo(result.getCount());
+            assertThat(result.getValueSketch()).isNull();
+        });
+    }
+
+    @Test
+    public void testFailedRangesAreRetriedOnOtherPeers() {
+        var withDeadPeer = new ArrayList<>(peers);
+        withDeadPeer.add(1, DEAD_PEER);
+        service = newService(withDeadPeer);
+        var policy = instances.get(0).getBean(ScanPolicyRegistry.class).getPolicy(null);
+        var expected = instances.get(0).getBean(SensitiveDataScanService.class).scanFile(file.toString(), policy);
+        assertThat(sorted(service.scanFile(file.toString(), policy).getResults())).isEqualTo(sorted(expected.getResults()));
+    }
+
+    @Test
+    public void testFailsWhenNoPeerCanScanARange() {
+        service = newService(List.of(DEAD_PEER));
+        var policy = instances.get(0).getBean(ScanPolicyRegistry.class).getPolicy(null);
+        assertThatThrownBy(() -> service.scanFile(file.toString(), policy))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Failed to scan part of the file on any peer.");
+    }
+
+    private static ShardedScanService newService(List<String> peers) {
+        return new ShardedScanService(instances.get(0).getBean(SensitiveDataScanService.class), new RestTemplateBuilder(), peers.toArray(new String[0]),
+                RANGE_SIZE, 3, 2, Duration.ofSeconds(30));
+    }
+
+    private static List<ScanResult> sorted(List<ScanResult> results) {
+        var sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparing(ScanResult::getType));
+        return sorted;
+    }
+}